@@ -0,0 +1,185 @@
+package org.cytoscape.biopax.internal;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.biopax.paxtools.io.SimpleIOHandler;
+import org.biopax.paxtools.model.Model;
+import org.biopax.paxtools.pattern.miner.SIFEnum;
+import org.biopax.paxtools.pattern.miner.SIFInteraction;
+import org.cytoscape.biopax.internal.util.BinaryModelFormat;
+import org.cytoscape.biopax.internal.util.ModelNormalizer;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.NetworkTestSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmarks of the BioPAX import stages, on synthetic models 
+ * (see {@link SyntheticModels}), mapped to in-memory networks.
+ * 
+ * The throughput of each stage is reported with the allocation rate 
+ * (JMH GC profiler) and peak heap usage ({@link PeakHeapProfiler});
+ * run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args="[JMH options]"
+ * 
+ * @author rodche
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ImportBenchmark {
+	
+	/** number of proteins */
+	@Param({"1000", "10000"})
+	int entities;
+	
+	/** number of biochemical reactions (and catalyses) */
+	@Param({"1000"})
+	int interactions;
+	
+	/** number of complexes */
+	@Param({"100"})
+	int complexes;
+	
+	/** number of relationship xrefs per protein reference */
+	@Param({"2"})
+	int xrefs;
+	
+	/** number of threads to map the model or search SIF with */
+	@Param({"1"})
+	int threads;
+	
+	private byte[] owl;
+	private byte[] cached;
+	private Model model;
+	private Model sifModel;
+	private Model sbgnModel;
+	private List<SIFInteraction> sif;
+	private NetworkTestSupport networks;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		// (display names are set before caching or mapping the model)
+		model = SyntheticModels.build(entities, interactions, complexes, xrefs);
+		BioPaxMapper.fixDisplayName(model, threads, () -> false);
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new SimpleIOHandler().convertToOWL(model, out);
+		owl = out.toByteArray();
+		out = new ByteArrayOutputStream();
+		BinaryModelFormat.write(model, out);
+		cached = out.toByteArray();
+		
+		// the conversions normalize the model in place (only once)
+		sifModel = SyntheticModels.build(entities, interactions, complexes, xrefs);
+		ModelNormalizer.normalize(sifModel, BioPaxMapper.SIF_NORMALIZATION);
+		sif = BioPaxMapper.searchSIF(sifModel, SIFEnum.values(), threads, null);
+		sbgnModel = SyntheticModels.build(entities, interactions, complexes, xrefs);
+		ModelNormalizer.normalize(sbgnModel, BioPaxMapper.SBGN_NORMALIZATION);
+	}
+	
+	@Setup(Level.Iteration)
+	public void setUpNetworks() {
+		// (new networks are not kept by the previous iterations' managers)
+		networks = new NetworkTestSupport();
+	}
+	
+	@Benchmark
+	public Model read() {
+		return BioPaxMapper.parse(new ByteArrayInputStream(owl));
+	}
+	
+	@Benchmark
+	public Model readCached() throws IOException {
+		return BinaryModelFormat.read(new ByteArrayInputStream(cached), getClass().getClassLoader());
+	}
+	
+	@Benchmark
+	public CyNetwork createCyNetwork() {
+		BioPaxMapper mapper = new BioPaxMapper(model, networks.getNetworkFactory());
+		mapper.setThreads(threads);
+		return mapper.createCyNetwork("benchmark", null);
+	}
+	
+	@Benchmark
+	public List<SIFInteraction> searchSIF() {
+		return BioPaxMapper.searchSIF(sifModel, SIFEnum.values(), threads, null);
+	}
+	
+	@Benchmark
+	public CyNetwork parseSIF() {
+		CyNetwork network = networks.getNetwork();
+		CustomSifParser parser = new CustomSifParser(network, null);
+		for (SIFInteraction interaction : sif)
+			parser.parse(interaction);
+		return network;
+	}
+	
+	@Benchmark
+	public void convertToSBGN() {
+		BioPaxMapper.convertToSBGN(sbgnModel, OutputStream.nullOutputStream());
+	}
+	
+	/**
+	 * Runs the benchmarks with the GC and peak heap profilers.
+	 * 
+	 * @param args JMH command line options (e.g., "-p entities=100000 searchSIF")
+	 * @throws Exception when the options are invalid or a benchmark fails
+	 */
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions options = new CommandLineOptions(args);
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(options)
+			.addProfiler(GCProfiler.class)
+			.addProfiler(PeakHeapProfiler.class);
+		if (options.getIncludes().isEmpty())
+			builder.include(ImportBenchmark.class.getName());
+		new Runner(builder.build()).run();
+	}
+}
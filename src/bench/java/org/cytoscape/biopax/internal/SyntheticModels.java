@@ -0,0 +1,159 @@
+package org.cytoscape.biopax.internal;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import org.biopax.paxtools.model.BioPAXLevel;
+import org.biopax.paxtools.model.Model;
+import org.biopax.paxtools.model.level3.BioSource;
+import org.biopax.paxtools.model.level3.BiochemicalReaction;
+import org.biopax.paxtools.model.level3.Catalysis;
+import org.biopax.paxtools.model.level3.CellularLocationVocabulary;
+import org.biopax.paxtools.model.level3.Complex;
+import org.biopax.paxtools.model.level3.ControlType;
+import org.biopax.paxtools.model.level3.ConversionDirectionType;
+import org.biopax.paxtools.model.level3.ModificationFeature;
+import org.biopax.paxtools.model.level3.Pathway;
+import org.biopax.paxtools.model.level3.Protein;
+import org.biopax.paxtools.model.level3.ProteinReference;
+import org.biopax.paxtools.model.level3.Provenance;
+import org.biopax.paxtools.model.level3.PublicationXref;
+import org.biopax.paxtools.model.level3.RelationshipXref;
+import org.biopax.paxtools.model.level3.SequenceModificationVocabulary;
+import org.biopax.paxtools.model.level3.SequenceSite;
+import org.biopax.paxtools.model.level3.UnificationXref;
+
+/**
+ * Builds synthetic BioPAX L3 models of a given size
+ * (the same parameters always make the same model).
+ * 
+ * @author rodche
+ */
+final class SyntheticModels {
+	
+	private static final String BASE = "http://biopax.cytoscape.org/bench/";
+	
+	private SyntheticModels() {
+	}
+	
+	/**
+	 * Creates a model: a pathway of biochemical reactions between proteins, 
+	 * each reaction catalyzed by another protein, and complexes of the proteins.
+	 * 
+	 * @param entities number of proteins (and protein references)
+	 * @param interactions number of biochemical reactions (there are as many catalyses too)
+	 * @param complexes number of two-protein complexes
+	 * @param xrefs number of relationship xrefs per protein reference (plus one unification xref)
+	 * @return new model
+	 */
+	static Model build(int entities, int interactions, int complexes, int xrefs) {
+		final Model m = BioPAXLevel.L3.getDefaultFactory().createModel();
+		m.setXmlBase(BASE);
+		
+		BioSource human = m.addNew(BioSource.class, BASE + "human");
+		human.setDisplayName("Homo sapiens");
+		UnificationXref taxon = m.addNew(UnificationXref.class, BASE + "taxonomy_9606");
+		taxon.setDb("taxonomy");
+		taxon.setId("9606");
+		human.addXref(taxon);
+		CellularLocationVocabulary cytosol = m.addNew(CellularLocationVocabulary.class, BASE + "cytosol");
+		cytosol.addTerm("cytosol");
+		SequenceModificationVocabulary phospho = m.addNew(SequenceModificationVocabulary.class, BASE + "phospho");
+		phospho.addTerm(BioPaxMapper.PHOSPHORYLATION_SITE);
+		Provenance source = m.addNew(Provenance.class, BASE + "datasource");
+		source.setDisplayName("Synthetic");
+		source.setStandardName("synthetic");
+		PublicationXref pub = m.addNew(PublicationXref.class, BASE + "pubmed_1");
+		pub.setDb("pubmed");
+		pub.setId("1");
+		pub.setTitle("Synthetic data");
+		pub.setYear(2020);
+		Pathway pathway = m.addNew(Pathway.class, BASE + "pathway");
+		pathway.setDisplayName("Synthetic pathway");
+		pathway.setOrganism(human);
+		pathway.addDataSource(source);
+		
+		final Protein[] proteins = new Protein[Math.max(entities, 2)];
+		for (int i = 0; i < proteins.length; i++) {
+			ProteinReference pr = m.addNew(ProteinReference.class, BASE + "pr" + i);
+			pr.setDisplayName("GENE" + i);
+			pr.setOrganism(human);
+			UnificationXref ux = m.addNew(UnificationXref.class, BASE + "uniprot_P" + i);
+			ux.setDb("UniProt Knowledgebase");
+			ux.setId("P" + (10000 + i));
+			pr.addXref(ux);
+			for (int j = 0; j < xrefs; j++) {
+				RelationshipXref rx = m.addNew(RelationshipXref.class, BASE + "rx" + i + "_" + j);
+				rx.setDb((j % 2 == 0) ? "HGNC Symbol" : "NCBI Gene");
+				rx.setId("G" + i + "_" + j);
+				pr.addXref(rx);
+			}
+			
+			Protein p = m.addNew(Protein.class, BASE + "p" + i);
+			p.setDisplayName("P" + i);
+			p.addName("protein " + i);
+			p.setEntityReference(pr);
+			p.setCellularLocation(cytosol);
+			p.addDataSource(source);
+			p.addXref(pub);
+			if (i % 3 == 0) {
+				ModificationFeature mf = m.addNew(ModificationFeature.class, BASE + "mf" + i);
+				mf.setModificationType(phospho);
+				SequenceSite site = m.addNew(SequenceSite.class, BASE + "site" + i);
+				site.setSequencePosition(i);
+				mf.setFeatureLocation(site);
+				p.addFeature(mf);
+			}
+			proteins[i] = p;
+		}
+		
+		for (int i = 0; i < interactions; i++) {
+			BiochemicalReaction br = m.addNew(BiochemicalReaction.class, BASE + "br" + i);
+			br.setDisplayName("reaction " + i);
+			br.addLeft(proteins[i % proteins.length]);
+			br.addRight(proteins[(i + 1) % proteins.length]);
+			br.setConversionDirection(ConversionDirectionType.LEFT_TO_RIGHT);
+			br.addDataSource(source);
+			br.addXref(pub);
+			Catalysis c = m.addNew(Catalysis.class, BASE + "cat" + i);
+			c.addController(proteins[(i + 2) % proteins.length]);
+			c.addControlled(br);
+			c.setControlType(ControlType.ACTIVATION);
+			c.addDataSource(source);
+			pathway.addPathwayComponent(br);
+			pathway.addPathwayComponent(c);
+		}
+		
+		for (int i = 0; i < complexes; i++) {
+			Complex cx = m.addNew(Complex.class, BASE + "cx" + i);
+			cx.setDisplayName("complex " + i);
+			cx.addComponent(proteins[(2 * i) % proteins.length]);
+			cx.addComponent(proteins[(2 * i + 1) % proteins.length]);
+			cx.addDataSource(source);
+		}
+		
+		return m;
+	}
+}
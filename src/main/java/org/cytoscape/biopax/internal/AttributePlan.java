@@ -0,0 +1,177 @@
+package org.cytoscape.biopax.internal;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Core App.
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.biopax.paxtools.controller.ObjectPropertyEditor;
+import org.biopax.paxtools.controller.PropertyEditor;
+import org.biopax.paxtools.controller.SimpleEditorMap;
+import org.biopax.paxtools.model.BioPAXElement;
+import org.biopax.paxtools.model.level3.Entity;
+import org.biopax.paxtools.model.level3.Stoichiometry;
+
+/**
+ * Which BioPAX properties of a model interface become node attributes,
+ * and under which column names (e.g., "xref", "organism/name"),
+ * computed once per (type, property path) instead of for every node.
+ * 
+ * Entity-range properties (which map to edges rather than attributes),
+ * stoichiometry, nextStep and name are skipped; values of single cardinality 
+ * object properties are mapped recursively (their columns are prefixed with the property path),
+ * which effectively prevents going into details for such objects as values of 
+ * 'xref', 'memberEntityReference', 'componentStoichiometry', etc. properties.
+ * 
+ * @author rodche
+ */
+final class AttributePlan {
+	
+	private static final ClassValue<AttributePlan> ROOT_PLANS = new ClassValue<AttributePlan>() {
+		@SuppressWarnings("unchecked")
+		@Override
+		protected AttributePlan computeValue(Class<?> type) {
+			return new AttributePlan((Class<? extends BioPAXElement>) type, null);
+		}
+	};
+	
+	@SuppressWarnings("rawtypes")
+	private final PropertyEditor[] editors;
+	private final String[] columns;
+	// plans for the values of single cardinality object properties, by value type (lazy)
+	private final List<ConcurrentMap<Class<?>, AttributePlan>> children;
+	
+	@SuppressWarnings("rawtypes")
+	private AttributePlan(Class<? extends BioPAXElement> type, String prefix) {
+		List<PropertyEditor> list = new ArrayList<PropertyEditor>();
+		for(PropertyEditor editor : SimpleEditorMap.L3.getEditorsOf(type)) {
+			if(accept(editor))
+				list.add(editor);
+		}
+		
+		editors = list.toArray(new PropertyEditor[list.size()]);
+		columns = new String[editors.length];
+		children = new ArrayList<ConcurrentMap<Class<?>, AttributePlan>>(editors.length);
+		for(int i = 0; i < editors.length; i++) {
+			PropertyEditor editor = editors[i];
+			columns[i] = (prefix == null) ? editor.getProperty() : prefix + "/" + editor.getProperty();
+			children.add((editor instanceof ObjectPropertyEditor && !editor.isMultipleCardinality())
+				? new ConcurrentHashMap<Class<?>, AttributePlan>() : null);
+		}
+	}
+	
+	/**
+	 * Gets the attribute plan for the BioPAX type.
+	 * 
+	 * @param type BioPAX model interface
+	 * @return plan
+	 */
+	static AttributePlan of(Class<? extends BioPAXElement> type) {
+		return ROOT_PLANS.get(type);
+	}
+	
+	/**
+	 * Collects the attribute values of the BioPAX element.
+	 * 
+	 * @param bpe BioPAX element (of the plan's type)
+	 * @param attributes to add the values to
+	 */
+	void execute(BioPAXElement bpe, ElementAttributes attributes) {
+		execute(bpe, attributes, new ArrayList<BioPAXElement>());
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void execute(BioPAXElement bpe, ElementAttributes attributes, List<BioPAXElement> path) {
+		path.add(bpe);
+		for(int i = 0; i < editors.length; i++) {
+			final PropertyEditor editor = editors[i];
+			final Set<?> values = editor.getValueFromBean(bpe);
+			if(values.isEmpty())
+				continue;
+			
+			for(Object obj : values) {
+				if (obj == null || editor.isUnknown(obj)) 
+					continue;
+				
+				final String value = obj.toString();
+				if (hasContent(value)) {
+					if (editor.isMultipleCardinality()) {
+						attributes.add(columns[i], value);
+					} else {
+						attributes.set(columns[i], value);
+					}
+				}
+				
+				final ConcurrentMap<Class<?>, AttributePlan> plans = children.get(i);
+				if(plans != null && !contains(path, obj)) {
+					final BioPAXElement child = (BioPAXElement) obj;
+					AttributePlan plan = plans.get(child.getModelInterface());
+					if(plan == null) {
+						plan = new AttributePlan(child.getModelInterface(), columns[i]);
+						AttributePlan prev = plans.putIfAbsent(child.getModelInterface(), plan);
+						if(prev != null)
+							plan = prev;
+					}
+					plan.execute(child, attributes, path);
+				}
+			}
+		}
+		path.remove(path.size() - 1);
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static boolean accept(PropertyEditor editor) {
+		final String prop = editor.getProperty();
+		if(editor instanceof ObjectPropertyEditor) {
+			Class<?> c = editor.getRange();
+			return !(Entity.class.isAssignableFrom(c)
+				|| Stoichiometry.class.isAssignableFrom(c)
+				|| "nextStep".equals(prop));
+		} else 
+			return !"name".equals(prop);
+	}
+	
+	// not empty and not just square brackets (e.g., an empty collection's string)
+	private static boolean hasContent(String value) {
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c != '[' && c != ']')
+				return true;
+		}
+		return false;
+	}
+
+	// whether the element is already on the current property path (cycle)
+	private static boolean contains(List<BioPAXElement> path, Object obj) {
+		for(BioPAXElement e : path) {
+			if(e == obj)
+				return true;
+		}
+		return false;
+	}
+}
@@ -31,8 +31,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FilenameUtils;
+import org.cytoscape.biopax.internal.util.CompressionUtil;
 import org.cytoscape.io.BasicCyFileFilter;
 import org.cytoscape.io.DataCategory;
 import org.cytoscape.io.util.StreamUtil;
@@ -49,13 +55,18 @@ public class BioPaxFilter extends BasicCyFileFilter {
 
 	private static final int DEFAULT_LINES_TO_CHECK = 20;
 
+	// compressed file extensions (the data format is then detected by magic bytes)
+	private static final Set<String> COMPRESSED_EXTENSIONS =
+			new HashSet<String>(Arrays.asList("gz", "gzip", "bz2", "bzip2"));
+
 	/**
 	 * Constructor.
 	 */
 	public BioPaxFilter(StreamUtil streamUtil) {
 		super(
-				new String[] { "xml", "owl", "rdf", ""}, 
-				new String[] { "text/xml", "application/rdf+xml", "application/xml", "text/plain" }, 
+				new String[] { "xml", "owl", "rdf", "gz", "bz2", "zip", ""}, 
+				new String[] { "text/xml", "application/rdf+xml", "application/xml", "text/plain", 
+						"application/gzip", "application/x-gzip", "application/x-bzip2", "application/zip" }, 
 				"BioPAX data", 
 				DataCategory.NETWORK, 
 				streamUtil);
@@ -66,6 +77,8 @@ public class BioPaxFilter extends BasicCyFileFilter {
 	 *
 	 * This method will return true only if a file ends in .xml or .owl, and
 	 * headers include the www.biopax.org namespace declaration.
+	 * Gzip or bzip2 compressed data are detected by magic bytes and
+	 * decompressed to check the header; for a zip archive, the first file is checked.
 	 */
 	@Override
 	public boolean accepts(InputStream stream, DataCategory category) {
@@ -74,7 +87,17 @@ public class BioPaxFilter extends BasicCyFileFilter {
 		
 		// file/stream header must contain the biopax declaration
 		try {
-			BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+			InputStream data = CompressionUtil.decompress(stream);
+			if (data.markSupported() && CompressionUtil.detect(data) == CompressionUtil.Format.ZIP) {
+				ZipInputStream zip = new ZipInputStream(data);
+				ZipEntry entry = zip.getNextEntry();
+				while (entry != null && entry.isDirectory())
+					entry = zip.getNextEntry();
+				if (entry == null)
+					return false;
+				data = CompressionUtil.decompress(zip);
+			}
+			BufferedReader reader = new BufferedReader(new InputStreamReader(data));
 			int linesToCheck = DEFAULT_LINES_TO_CHECK;
 			while (linesToCheck > 0) {
 				String line = reader.readLine();
@@ -93,6 +116,9 @@ public class BioPaxFilter extends BasicCyFileFilter {
 	@Override
 	public boolean accepts(URI uri, DataCategory category) {
 		String ext = FilenameUtils.getExtension(uri.toString());		
+		// e.g., 'pathway.owl.gz' - check the extension of the compressed file
+		if (COMPRESSED_EXTENSIONS.contains(ext.toLowerCase()))
+			ext = FilenameUtils.getExtension(FilenameUtils.removeExtension(uri.toString()));
 		
 		if (category == this.category && extensions.contains(ext)) {
 			try (InputStream is = streamUtil.getInputStream(uri.toURL())) {
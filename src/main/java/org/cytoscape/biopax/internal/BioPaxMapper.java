@@ -23,30 +23,37 @@ package org.cytoscape.biopax.internal;
  * <http://www.gnu.org/licenses/lgpl-2.1.html>.
  * #L%
  */
-import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.StringWriter;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.biopax.paxtools.controller.AbstractTraverser;
 import org.biopax.paxtools.controller.ModelUtils;
-import org.biopax.paxtools.controller.ObjectPropertyEditor;
-import org.biopax.paxtools.controller.PropertyEditor;
 import org.biopax.paxtools.controller.SimpleEditorMap;
+import org.biopax.paxtools.controller.SimpleMerger;
 import org.biopax.paxtools.converter.LevelUpgrader;
 import org.biopax.paxtools.io.SimpleIOHandler;
 import org.biopax.paxtools.io.sbgn.L3ToSBGNPDConverter;
@@ -72,29 +79,36 @@ import org.biopax.paxtools.model.level3.PublicationXref;
 import org.biopax.paxtools.model.level3.RelationshipTypeVocabulary;
 import org.biopax.paxtools.model.level3.RelationshipXref;
 import org.biopax.paxtools.model.level3.SimplePhysicalEntity;
-import org.biopax.paxtools.model.level3.Stoichiometry;
 import org.biopax.paxtools.model.level3.UnificationXref;
 import org.biopax.paxtools.model.level3.XReferrable;
 import org.biopax.paxtools.model.level3.Xref;
-import org.biopax.paxtools.pattern.miner.CustomFormat;
-import org.biopax.paxtools.pattern.miner.OutputColumn;
 import org.biopax.paxtools.pattern.miner.SIFInteraction;
 import org.biopax.paxtools.pattern.miner.SIFSearcher;
-import org.biopax.paxtools.pattern.miner.SIFToText;
 import org.biopax.paxtools.pattern.miner.SIFType;
 import org.biopax.paxtools.pattern.miner.SimpleIDFetcher;
 import org.biopax.paxtools.util.ClassFilterSet;
-import org.biopax.paxtools.util.Filter;
 import org.cytoscape.biopax.internal.util.AttributeUtil;
+import org.cytoscape.biopax.internal.util.AttributeWriter;
+import org.cytoscape.biopax.internal.util.BioPaxReaderError;
 import org.cytoscape.biopax.internal.util.ClassLoaderHack;
+import org.cytoscape.biopax.internal.util.CompressionUtil;
+import org.cytoscape.biopax.internal.util.ElementNodeIndex;
 import org.cytoscape.biopax.internal.util.ExternalLink;
 import org.cytoscape.biopax.internal.util.ExternalLinkUtil;
+import org.cytoscape.biopax.internal.util.ImportMonitor;
+import org.cytoscape.biopax.internal.util.ModelNormalizer;
+import org.cytoscape.biopax.internal.util.NetworkDiff;
+import org.cytoscape.biopax.internal.util.ModelNormalizer.Step;
+import org.cytoscape.biopax.internal.util.PropertyAccessors;
+import org.cytoscape.biopax.internal.util.Workers;
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNetworkFactory;
 import org.cytoscape.model.CyNode;
 import org.cytoscape.model.CyRow;
 import org.cytoscape.model.subnetwork.CyRootNetwork;
+import org.cytoscape.model.subnetwork.CySubNetwork;
+import org.cytoscape.work.TaskMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -150,14 +164,59 @@ public class BioPaxMapper {
 	public static final String BIOPAX_IHOP_LINKS = "IHOP_LINKS";
 	public static final String PHOSPHORYLATION_SITE = "phosphorylation site";
 	public static final String PROTEIN_PHOSPHORYLATED = "Protein-phosphorylated";
+	
+	/**
+	 * Model normalization before the SIF conversion: merge interactions 
+	 * with exactly same properties, and some extra normalization 
+	 * to get better conversion results.
+	 */
+	public static final Step[] SIF_NORMALIZATION = {Step.MERGE_INTERACTIONS, 
+		Step.NORMALIZE_GENERICS, //TODO not sure want to apply this...
+		Step.ADD_MISSING_ENTITY_REFERENCES};
+	
+	/**
+	 * Model normalization before the SBGN conversion.
+	 */
+	public static final Step[] SBGN_NORMALIZATION = {Step.MERGE_INTERACTIONS};
+	
+	// number of entities per parallel attribute mapping task
+	private static final int ATTRIBUTES_CHUNK_SIZE = 256;
+	// number of elements per parallel display name fixing task
+	private static final int FIX_NAMES_CHUNK_SIZE = 4096;
+	// number of elements per parallel edge generating task
+	private static final int EDGES_CHUNK_SIZE = 1024;
 
 	private final Model model;
 	private final CyNetworkFactory networkFactory;
 	
-	// BioPAX ID (URI) to CyNode map
+	// BioPAX element (URI) to CyNode index (lock-free, sized for the whole model)
 	// remark: nodes's CyTable will also have 'URI' (RDF Id) column
-	private final Map<BioPAXElement, CyNode> 
-		bpeToCyNodeMap = new HashMap<BioPAXElement, CyNode>();
+	private ElementNodeIndex bpeToCyNodeMap;
+	
+	// number of threads to compute node attributes (1 - do in the current thread)
+	private int threads = 1;
+	
+	// shared pool to compute node attributes and edges (or null - a new pool per network)
+	private ExecutorService attributesPool;
+	
+	// edge attributes (while the edges are being created)
+	private AttributeWriter edgeAttributes;
+	
+	// existing nodes and edges to reuse (when updating a network)
+	private NetworkDiff diff;
+	
+	// write only the identity attributes (the rest is created on demand)
+	private boolean lazyAttributes;
+	
+	// progress and cancellation checkpoints
+	private ImportMonitor monitor = ImportMonitor.none();
+	
+	// unescaped display names by URI (hubs, like ATP, are linked by many edges);
+	// remark: BioPAXElementImpl.hashCode() concatenates strings, so the key is the URI
+	private final Map<String, String> names = new ConcurrentHashMap<String, String>();
+	
+	// html links by xref URI (xrefs are shared by many elements)
+	private final Map<String, String> xrefLinks = new ConcurrentHashMap<String, String>();
 	
 
 	/**
@@ -172,22 +231,83 @@ public class BioPaxMapper {
 		this.networkFactory = cyNetworkFactory;
 	}
 	
+	/**
+	 * Sets the number of worker threads to use 
+	 * for mapping the BioPAX properties to node attributes.
+	 * 
+	 * @param threads number of threads (1 - no parallel mapping)
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+	
+	/**
+	 * Sets the (shared) worker pool to compute node attributes and edges with, 
+	 * instead of creating a new pool of {@link #setThreads(int)} threads for each network;
+	 * the mapper does not shut it down.
+	 * 
+	 * @param pool executor (null - create a pool when needed)
+	 */
+	public void setAttributesPool(ExecutorService pool) {
+		this.attributesPool = pool;
+	}
+	
+	/**
+	 * Sets the monitor to report the progress of creating/updating a network
+	 * and to check whether it's cancelled (then {@link CancellationException} is thrown).
+	 * 
+	 * @param monitor progress/cancel monitor (null - none)
+	 */
+	public void setMonitor(ImportMonitor monitor) {
+		this.monitor = (monitor != null) ? monitor : ImportMonitor.none();
+	}
+	
+	/**
+	 * Sets whether to create only the node identity attributes 
+	 * (URI, BIOPAX_TYPE, name, chemical modifications), 
+	 * so that the rest could be created later, when needed (see {@link LazyAttributeLoader}).
+	 * 
+	 * @param lazyAttributes true - create only the identity attributes
+	 */
+	public void setLazyAttributes(boolean lazyAttributes) {
+		this.lazyAttributes = lazyAttributes;
+	}
+	
+	/**
+	 * Sets the existing network's nodes and edges to reuse 
+	 * (when updating the network, e.g., from a new release of the same BioPAX data); 
+	 * this also affects {@link #createNodeAttributes(CyNetwork, Map, TaskMonitor, BooleanSupplier)}.
+	 * 
+	 * @param diff existing network index, or null (new network)
+	 */
+	public void setNetworkDiff(NetworkDiff diff) {
+		this.diff = diff;
+	}
+	
+	/**
+	 * Gets the BioPAX elements and their nodes created 
+	 * by the last {@link #createCyNetwork(String, CyRootNetwork)} or {@link #updateCyNetwork(CyNetwork)};
+	 * the nodes can be also found by URI there. 
+	 * 
+	 * @return element to node index (null if no network was created yet)
+	 */
+	public ElementNodeIndex getNodeIndex() {
+		return bpeToCyNodeMap;
+	}
+	
 	public CyNetwork createCyNetwork(String networkName, CyRootNetwork rootNetwork)  {
 		CyNetwork network = (rootNetwork == null) 
 				? networkFactory.createNetwork() 
 					: rootNetwork.addSubNetwork();
 	
-		// First, create nodes for all Entity class objects
-		createEntityNodes(network);
-
-		// create edges
-		createInteractionEdges(network);
-		createComplexEdges(network);
-		
-		// TODO create pathwayComponent edges (requires pathway nodes)?
-		
-		// create PE->memberPE edges!
-		createMemberEdges(network);
+		try {
+			withPool(() -> mapToNetwork(network));
+		} catch (CancellationException e) {
+			// do not leave the incomplete network in the collection
+			if(rootNetwork != null)
+				rootNetwork.removeSubNetwork((CySubNetwork) network);
+			throw e;
+		}
 		
 		// Finally, set network attributes:
 		
@@ -200,42 +320,117 @@ public class BioPaxMapper {
 		return network;
 	}
 	
-	private void createMemberEdges(CyNetwork network) {
-		// for each PE,
-		for (PhysicalEntity par : model.getObjects(PhysicalEntity.class)) {
-			Set<PhysicalEntity> members = par.getMemberPhysicalEntity();
-			if(members.isEmpty()) 
-				continue;
-					
-			CyNode cyParentNode = bpeToCyNodeMap.get(par);
-			assert cyParentNode != null : "cyParentNode is NULL.";
-			// for each its member PE, add the directed edge
-			for (PhysicalEntity member : members) 
-			{
-				CyNode cyMemberNode = bpeToCyNodeMap.get(member);
-				CyEdge edge = network.addEdge(cyParentNode, cyMemberNode, true);
-				AttributeUtil.set(network, edge, "interaction", "member", String.class);
+	/**
+	 * Updates the network, previously created by {@link #createCyNetwork(String, CyRootNetwork)},
+	 * in place: nodes are matched by URI, edges - by the nodes and type; only new nodes and edges
+	 * are added, the missing ones removed, and only changed attribute values written
+	 * (so the existing views and layouts are kept).
+	 * 
+	 * All the node attributes and edges are computed first (this can be cancelled), 
+	 * and only then the network is updated (this is not cancelled, 
+	 * not to leave the network half-updated).
+	 * 
+	 * @param network existing BioPAX (default mapping) network
+	 */
+	public void updateCyNetwork(CyNetwork network) {
+		updateCyNetwork(network, null);
+	}
+	
+	/**
+	 * Same as {@link #updateCyNetwork(CyNetwork)}, but also runs the action 
+	 * when everything is computed, right before the network is modified
+	 * (i.e., only if the update was not cancelled).
+	 * 
+	 * @param network existing BioPAX (default mapping) network
+	 * @param beforeUpdate what to do before the network is modified (or null)
+	 */
+	public void updateCyNetwork(CyNetwork network, Runnable beforeUpdate) {
+		withPool(() -> update(network, beforeUpdate));
+	}
+	
+	private void update(CyNetwork network, Runnable beforeUpdate) {
+		final List<Entity> entities = getNodeElements();
+		ImportMonitor stage = monitor.stage("Creating node attributes...", 0.7);
+		final Map<BioPAXElement, ElementAttributes> attributes = getNodeAttributes(entities, stage, stage);
+		stage = monitor.stage("Creating edges...", 0.15);
+		final List<EdgeDescriptor> edges = new ArrayList<EdgeDescriptor>();
+		createEdges((bpe, found) -> edges.addAll(found), stage);
+		
+		// no more cancel checks from here on
+		stage = monitor.stage("Updating the network...", 0.15);
+		if(beforeUpdate != null)
+			beforeUpdate.run();
+		diff = new NetworkDiff(network, BIOPAX_URI);
+		try {
+			bpeToCyNodeMap = new ElementNodeIndex(model.getObjects().size());
+			for(Entity bpe : entities)
+				bpeToCyNodeMap.put(bpe, diff.getNode(bpe.getUri()));
+			setNodeAttributes(network, bpeToCyNodeMap, attributes);
+			stage.setProgress(0.5);
+			
+			edgeAttributes = new AttributeWriter(network, "BioPAX edges");
+			edgeAttributes.setSkipUnchanged(true);
+			try {
+				for(EdgeDescriptor e : edges)
+					addEdge(network, e);
+			} finally {
+				edgeAttributes.close();
+				edgeAttributes = null;
 			}
+			diff.removeStale();
+		} finally {
+			diff = null;
 		}
+		monitor.setProgress(1.0);
 	}
+	
+	// runs the job using the shared pool, or a new pool (if threads > 1), 
+	// which the node attributes and edges of the network then share
+	private void withPool(Runnable job) {
+		if(attributesPool != null || threads < 2) {
+			job.run();
+			return;
+		}
+		attributesPool = Workers.newPool("biopax-mapper", threads);
+		try {
+			job.run();
+		} finally {
+			attributesPool.shutdownNow();
+			attributesPool = null;
+		}
+	}
+	
+	private void mapToNetwork(CyNetwork network) {
+		// First, create nodes for all Entity class objects
+		bpeToCyNodeMap = new ElementNodeIndex(model.getObjects().size());
+		createEntityNodes(network, monitor.stage("Creating nodes...", 0.05));
+		
+		// traverse the properties to create node attributes
+		ImportMonitor stage = monitor.stage("Creating node attributes...", 0.75);
+		createNodeAttributes(network, bpeToCyNodeMap, stage, stage);
 
-
-	private void createEntityNodes(CyNetwork network) {
-		Set<Entity> entities = model.getObjects(Entity.class);
+		// create edges
+		stage = monitor.stage("Creating edges...", 0.2);
+		edgeAttributes = new AttributeWriter(network, "BioPAX edges");
+		try {
+			createEdges((bpe, edges) -> {
+				for (EdgeDescriptor e : edges)
+					addEdge(network, e);
+			}, stage);
+		} finally {
+			edgeAttributes.close();
+			edgeAttributes = null;
+		}
+		monitor.setProgress(1.0);
+	}
+	
+	private void createEntityNodes(final CyNetwork network, final ImportMonitor stage) {
+		final List<Entity> entities = getNodeElements();
+		int done = 0;
 		for(Entity bpe: entities) {	
-			// do not make nodes for top/main pathways
-			if(bpe instanceof Pathway) {
-				if(bpe.getParticipantOf().isEmpty()
-					&& ((Process)bpe).getPathwayComponentOf().isEmpty())
-					continue;
-			}
-			
+			stage.step(done++, entities.size());
 			//  Create node symbolizing the interaction
-			CyNode node = network.addNode();
-			bpeToCyNodeMap.put(bpe, node);
-				           
-			// traverse
-			createAttributesFromProperties(bpe, model, node, network);
+			bpeToCyNodeMap.put(bpe, network.addNode());
 		}
 		
 		if(log.isDebugEnabled())
@@ -244,110 +439,337 @@ public class BioPaxMapper {
 	}
 
 
-	private void createInteractionEdges(CyNetwork network) {
-		//  Extract the List of all Interactions
-		Collection<Interaction> interactionList = model.getObjects(Interaction.class);
+	/*
+	 * Entities to map to nodes (all but the top/main pathways).
+	 */
+	private List<Entity> getNodeElements() {
+		final List<Entity> entities = new ArrayList<Entity>();
+		for(Entity bpe : model.getObjects(Entity.class)) {
+			if(isNodeElement(bpe))
+				entities.add(bpe);
+		}
+		return entities;
+	}
+	
+	// do not make nodes for top/main pathways
+	private static boolean isNodeElement(BioPAXElement bpe) {
+		if(!(bpe instanceof Entity))
+			return false;
+		return !(bpe instanceof Pathway) || !((Pathway) bpe).getParticipantOf().isEmpty()
+			|| !((Pathway) bpe).getPathwayComponentOf().isEmpty();
+	}
 
-		for (Interaction itr : interactionList) {	
+
+	/**
+	 * Creates node attributes from the BioPAX elements' properties.
+	 * 
+	 * Attributes are computed in parallel (see {@link #setThreads(int)}, {@link #setAttributesPool(ExecutorService)}),
+	 * and written to the network tables in batches by the calling thread. 
+	 * When updating a network (see {@link #setNetworkDiff(NetworkDiff)}), all the attributes 
+	 * are computed first, and then written (that is not cancelled).
+	 * 
+	 * @param network network
+	 * @param nodes BioPAX elements and their nodes
+	 * @param taskMonitor to report progress (or null)
+	 * @param cancelled cancel flag (or null)
+	 */
+	public void createNodeAttributes(final CyNetwork network, final Map<? extends BioPAXElement, CyNode> nodes,
+			final TaskMonitor taskMonitor, final BooleanSupplier cancelled) 
+	{
+		if(diff != null) {
+			setNodeAttributes(network, nodes, getNodeAttributes(nodes.keySet(), taskMonitor, cancelled));
+			return;
+		}
+		
+		final AttributeWriter writer = new AttributeWriter(network, "BioPAX element nodes");
+		try {
+			computeNodeAttributes(nodes.keySet(), 
+				(bpe, attributes) -> attributes.writeTo(writer, nodes.get(bpe)), taskMonitor, cancelled);
+		} finally {
+			// write (and log) the values buffered so far, also when cancelled or failed
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Computes the node attributes from the BioPAX elements' properties
+	 * (in parallel, see {@link #createNodeAttributes(CyNetwork, Map, TaskMonitor, BooleanSupplier)}),
+	 * without modifying any network.
+	 * 
+	 * @param elements BioPAX elements
+	 * @param taskMonitor to report progress (or null)
+	 * @param cancelled cancel flag (or null)
+	 * @return the elements' attributes (identity map)
+	 */
+	public Map<BioPAXElement, ElementAttributes> getNodeAttributes(Collection<? extends BioPAXElement> elements,
+			final TaskMonitor taskMonitor, final BooleanSupplier cancelled) 
+	{
+		final Map<BioPAXElement, ElementAttributes> attributes = new IdentityHashMap<BioPAXElement, ElementAttributes>();
+		computeNodeAttributes(elements, attributes::put, taskMonitor, cancelled);
+		return attributes;
+	}
+	
+	/**
+	 * Writes the node attributes computed by {@link #getNodeAttributes(Collection, TaskMonitor, BooleanSupplier)};
+	 * when updating a network (see {@link #setNetworkDiff(NetworkDiff)}), 
+	 * only the changed values are written, and the values 
+	 * that the existing nodes no longer have are cleared.
+	 * This is not cancelled.
+	 * 
+	 * @param network network
+	 * @param nodes BioPAX elements and their nodes (in the order to write)
+	 * @param attributes the elements' attributes (nodes without these are skipped)
+	 */
+	public void setNodeAttributes(CyNetwork network, Map<? extends BioPAXElement, CyNode> nodes, 
+			Map<BioPAXElement, ElementAttributes> attributes) 
+	{
+		final AttributeWriter writer = new AttributeWriter(network, "BioPAX element nodes");
+		writer.setSkipUnchanged(diff != null);
+		// attributes of the existing nodes (to clear the values they no longer have)
+		final Map<CyNode, ElementAttributes> updated = (diff != null) 
+			? new HashMap<CyNode, ElementAttributes>() : null;
+		try {
+			for(Map.Entry<? extends BioPAXElement, CyNode> e : nodes.entrySet()) {
+				ElementAttributes values = attributes.get(e.getKey());
+				if(values == null)
+					continue;
+				values.writeTo(writer, e.getValue());
+				if(updated != null && diff.isReused(e.getValue()))
+					updated.put(e.getValue(), values);
+			}
+		} finally {
+			writer.close();
+		}
+		
+		if(updated != null)
+			clearStaleValues(network, updated);
+	}
+	
+	/*
+	 * Computes the attributes of the elements in parallel, 
+	 * and passes them to the writer in the calling thread.
+	 */
+	private void computeNodeAttributes(Collection<? extends BioPAXElement> items, 
+			final BiConsumer<BioPAXElement, ElementAttributes> writer, 
+			final TaskMonitor taskMonitor, final BooleanSupplier cancelled) 
+	{
+		final List<BioPAXElement> elements = new ArrayList<BioPAXElement>(items);
+		final int[] done = new int[1];
+		final BiConsumer<BioPAXElement, ElementAttributes> write = (bpe, attributes) -> {
+			writer.accept(bpe, attributes);
+			if(taskMonitor != null && ++done[0] % ATTRIBUTES_CHUNK_SIZE == 0)
+				taskMonitor.setProgress((double) done[0] / elements.size());
+		};
+		
+		if((attributesPool != null || threads > 1) && elements.size() > ATTRIBUTES_CHUNK_SIZE) {
+			// compute in parallel, but pass the results to the writer in this thread only
+			ExecutorService pool = (attributesPool != null) 
+				? attributesPool : Workers.newPool("biopax-mapper", threads);
+			try {
+				Workers.map(pool, elements, ATTRIBUTES_CHUNK_SIZE, 
+					bpe -> (lazyAttributes) ? getIdentityAttributes(bpe, name(bpe)) : getAttributes(bpe, model, name(bpe), xrefLinks), 
+					write, cancelled);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new BioPaxReaderError("Interrupted while mapping BioPAX properties to node attributes");
+			} finally {
+				if(pool != attributesPool)
+					pool.shutdownNow();
+			}
+		} else {
+			for(BioPAXElement bpe : elements) {
+				if(cancelled != null && cancelled.getAsBoolean())
+					throw new CancellationException();
+				write.accept(bpe, (lazyAttributes) 
+					? getIdentityAttributes(bpe, name(bpe)) : getAttributes(bpe, model, name(bpe), xrefLinks));
+			}
+		}
+	}
+	
+	/*
+	 * Clears the attribute values that the updated nodes no longer have
+	 * (only in the columns that the mapper writes).
+	 */
+	private static void clearStaleValues(CyNetwork network, Map<CyNode, ElementAttributes> updated) {
+		final Set<String> columns = new HashSet<String>();
+		final Set<String> hiddenColumns = new HashSet<String>();
+		for(ElementAttributes attributes : updated.values()) {
+			columns.addAll(attributes.getValues().keySet());
+			hiddenColumns.addAll(attributes.getHiddenValues().keySet());
+		}
+		
+		for(Map.Entry<CyNode, ElementAttributes> e : updated.entrySet()) {
+			clearStaleValues(network.getRow(e.getKey()), columns, e.getValue().getValues());
+			clearStaleValues(network.getRow(e.getKey(), CyNetwork.HIDDEN_ATTRS), 
+				hiddenColumns, e.getValue().getHiddenValues());
+		}
+	}
+	
+	private static void clearStaleValues(CyRow row, Set<String> columns, Map<String, Object> values) {
+		for(String column : columns) {
+			if(values.get(column) == null && row.getTable().getColumn(column) != null && row.isSet(column))
+				row.set(column, null);
+		}
+	}
+	
+	/*
+	 * Edge to add to the network (computed by a worker thread),
+	 * between the nodes of the elements.
+	 */
+	private static final class EdgeDescriptor {
+		final BioPAXElement source;
+		final BioPAXElement target;
+		final String type;
+		final String name; // or null
+		
+		EdgeDescriptor(BioPAXElement source, BioPAXElement target, String type, String name) {
+			this.source = source;
+			this.target = target;
+			this.type = type;
+			this.name = name;
+		}
+	}
+	
+	private void addEdge(CyNetwork network, EdgeDescriptor e) {
+		CyNode source = bpeToCyNodeMap.get(e.source);
+		CyNode target = bpeToCyNodeMap.get(e.target);
+		if(source == null || target == null)
+			return; // e.g., a dangling reference
+		CyEdge edge = (diff == null) ? network.addEdge(source, target, true) 
+			: diff.getEdge(source, target, e.type);
+		edgeAttributes.set(edge, "interaction", e.type, String.class);
+		if(e.name != null)
+			edgeAttributes.set(edge, CyNetwork.NAME, e.name, String.class);
+	}
+	
+	/*
+	 * Generates the interaction, complex ("contains") and PE->memberPE edges. 
+	 * The edges of each element are generated in parallel (see setThreads), 
+	 * and passed to the writer in this thread (e.g., to add them to the network).
+	 */
+	private void createEdges(final BiConsumer<BioPAXElement, List<EdgeDescriptor>> writer, final ImportMonitor stage) {
+		final List<BioPAXElement> elements = new ArrayList<BioPAXElement>(model.getObjects(Interaction.class));
+		for (PhysicalEntity pe : model.getObjects(PhysicalEntity.class)) {
+			if(!pe.getMemberPhysicalEntity().isEmpty() 
+				|| (pe instanceof Complex && !((Complex) pe).getComponent().isEmpty()))
+				elements.add(pe);
+		}
+		
+		// TODO create pathwayComponent edges (requires pathway nodes)?
+		
+		final int[] done = new int[1];
+		final BiConsumer<BioPAXElement, List<EdgeDescriptor>> write = (bpe, edges) -> {
+			stage.step(done[0]++, elements.size());
+			writer.accept(bpe, edges);
+		};
+		
+		if((attributesPool != null || threads > 1) && elements.size() > EDGES_CHUNK_SIZE) {
+			// in the input order (so that the edges are always added in the same order)
+			ExecutorService pool = (attributesPool != null) 
+				? attributesPool : Workers.newPool("biopax-edges", threads);
+			try {
+				Workers.mapInOrder(pool, elements, EDGES_CHUNK_SIZE, this::getEdges, write, stage);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new BioPaxReaderError("Interrupted while creating BioPAX network edges");
+			} finally {
+				if(pool != attributesPool)
+					pool.shutdownNow();
+			}
+		} else {
+			for (BioPAXElement bpe : elements)
+				write.accept(bpe, getEdges(bpe));
+		}
+	}
+	
+	/*
+	 * Generates the edges of an interaction, complex or PE with members
+	 * (only reads the model - thread-safe; the nodes may not exist yet).
+	 */
+	private List<EdgeDescriptor> getEdges(BioPAXElement bpe) {
+		final List<EdgeDescriptor> edges = new ArrayList<EdgeDescriptor>();
+		if (bpe instanceof Interaction) {
+			Interaction itr = (Interaction) bpe;
 			if(log.isTraceEnabled()) {
 				log.trace("Mapping " + itr.getModelInterface().getSimpleName() 
 					+ " edges : " + itr.getUri());
 			}
 			
 			if (itr instanceof Conversion) {
-				addConversionInteraction(network, (Conversion)itr);
+				addConversionInteraction(edges, (Conversion)itr);
 			} else if (itr instanceof Control) {
-				addControlInteraction(network, (Control) itr);
+				addControlInteraction(edges, (Control) itr);
 			} else {
-				addPhysicalInteraction(network, itr);
+				addPhysicalInteraction(edges, itr);
 			}
-		}
-	}
-
-
-	private void createComplexEdges(CyNetwork network) {
-		// iterate through all pe's
-		for (Complex complexElement : model.getObjects(Complex.class)) {
-			Set<PhysicalEntity> members = complexElement.getComponent();
-			if(members.isEmpty()) 
-				continue;
-
-			// get node
-			CyNode complexCyNode = bpeToCyNodeMap.get(complexElement);
-			
-			// get all components. There can be 0 or more
-			for (PhysicalEntity member : members) 
-			{
-				CyNode complexMemberCyNode = bpeToCyNodeMap.get(member);
-				// create edge, set attributes
-				CyEdge edge = network.addEdge(complexCyNode, complexMemberCyNode, true);
-				AttributeUtil.set(network, edge, "interaction", "contains", String.class);	
+		} else {
+			PhysicalEntity pe = (PhysicalEntity) bpe;
+			if (pe instanceof Complex) {
+				// get all components. There can be 0 or more
+				for (PhysicalEntity member : ((Complex) pe).getComponent()) 
+					edges.add(new EdgeDescriptor(pe, member, "contains", null));
 			}
+			// for each its member PE, add the directed edge
+			for (PhysicalEntity member : pe.getMemberPhysicalEntity()) 
+				edges.add(new EdgeDescriptor(pe, member, "member", null));
 		}
+		return edges;
 	}
 
 	/*
 	 * Adds a Physical Interaction, such as a binding interaction between
 	 * two proteins.
 	 */
-	private void addPhysicalInteraction(CyNetwork network, Interaction interactionElement) {
+	private void addPhysicalInteraction(List<EdgeDescriptor> edges, Interaction interactionElement) {
 		//  Add all Participants
 		Collection<Entity> participantElements = interactionElement.getParticipant();
 		for (Entity participantElement : participantElements) {
-			linkNodes(network, interactionElement, participantElement, "participant");
+			linkNodes(edges, interactionElement, participantElement, "participant");
 		}
 	}
 
 	/*
 	 * Adds a Conversion Interaction.
 	 */
-	private void addConversionInteraction(CyNetwork network, Conversion interactionElement) {
+	private void addConversionInteraction(List<EdgeDescriptor> edges, Conversion interactionElement) {
 		//  Add Left Side of Reaction
 		Collection<PhysicalEntity> leftSideElements = interactionElement.getLeft();
 		for (PhysicalEntity leftElement: leftSideElements) {
-			linkNodes(network, interactionElement, leftElement, "left");
+			linkNodes(edges, interactionElement, leftElement, "left");
 		}
 
 		//  Add Right Side of Reaction
 		Collection<PhysicalEntity> rightSideElements = interactionElement.getRight();
 		for (PhysicalEntity rightElement : rightSideElements) {
-			linkNodes(network, interactionElement, rightElement, "right");
+			linkNodes(edges, interactionElement, rightElement, "right");
 		}
 	}
 
 	/*
 	 * Add Edges Between Interaction/Complex Node and Physical Entity Node.
 	 */
-	private void linkNodes(CyNetwork network, BioPAXElement bpeA, BioPAXElement bpeB, String type) 
+	private void linkNodes(List<EdgeDescriptor> edges, BioPAXElement bpeA, BioPAXElement bpeB, String type) 
 	{	
-		// Note: getCyNode also assigns cellular location attribute...
-		CyNode nodeA = bpeToCyNodeMap.get(bpeA);
-		if(nodeA == null) {
-			log.debug("linkNodes: no node was created for " 
+		if(!isNodeElement(bpeA)) {
+			log.debug("linkNodes: no node is created for " 
 				+ bpeA.getModelInterface() + " " + bpeA.getUri());
 			return; //e.g., we do not create any pathway nodes currently...
 		}
 		
-		CyNode nodeB = bpeToCyNodeMap.get(bpeB);
-		if(nodeB == null) {
-			log.debug("linkNodes: no node was created for " 
+		if(!isNodeElement(bpeB)) {
+			log.debug("linkNodes: no node is created for " 
 					+ bpeB.getModelInterface() + " " + bpeB.getUri());
 			return; //e.g., we do not create any pathway nodes currently...
 		}
 		
-		CyEdge edge = null;
-		String a = getName(bpeA);
-		String b = getName(bpeB);	
+		String a = name(bpeA);
+		String b = name(bpeB);	
 		if (type.equals("right") || type.equals("cofactor")
 				|| type.equals("participant")) {
-			edge = network.addEdge(nodeA, nodeB, true);
-			AttributeUtil.set(network, edge, CyNetwork.NAME, a + type + b, String.class);
+			edges.add(new EdgeDescriptor(bpeA, bpeB, type, a + type + b));
 		} else {
-			edge = network.addEdge(nodeB, nodeA, true);
-			AttributeUtil.set(network, edge, CyNetwork.NAME, b + type + a, String.class);
+			edges.add(new EdgeDescriptor(bpeB, bpeA, type, b + type + a));
 		}
-
-		AttributeUtil.set(network, edge, "interaction", type, String.class);
 		
 	}
 
@@ -355,7 +777,7 @@ public class BioPaxMapper {
 	/*
 	 * Adds a BioPAX Control Interaction.
 	 */
-	private void addControlInteraction(CyNetwork network, Control control) {
+	private void addControlInteraction(List<EdgeDescriptor> edges, Control control) {
 		Collection<Process> controlledList = control.getControlled();		
 		for (Process process : controlledList) {
 			// Determine the BioPAX Edge Type
@@ -363,13 +785,13 @@ public class BioPaxMapper {
 			ControlType cType = control.getControlType();
 			typeStr = (cType == null) ? typeStr : cType.toString();
 			//edge direction (trick) - from control to process (like for 'right', 'cofactor', 'participant')
-			linkNodes(network, process, control, typeStr); 
+			linkNodes(edges, process, control, typeStr); 
 		} 
 
 		Collection<Controller> controllerList = control.getController();
 		for (Controller controller : controllerList) {
 			// directed edge - from Controller to Control (like 'left')
-			linkNodes(network, control, controller, "controller");
+			linkNodes(edges, control, controller, "controller");
 		}
 
 		// cofactor relationships
@@ -377,7 +799,7 @@ public class BioPaxMapper {
 			Collection<PhysicalEntity> coFactorList = ((Catalysis) control).getCofactor();
 			for(PhysicalEntity cofactor : coFactorList) {
 				// direction - from control to cofactor (like 'right', 'participant', 'controlled')
-				linkNodes(network, control, cofactor, "cofactor");
+				linkNodes(edges, control, cofactor, "cofactor");
 			}
 		}	
 	}
@@ -395,6 +817,12 @@ public class BioPaxMapper {
 		}
 
 		final Set<String> chemicalModificationsSet = new HashSet<String>();
+		
+		// skip the elements that cannot have features (e.g., interactions)
+		final Class<? extends BioPAXElement> type = participantElement.getModelInterface();
+		if(!PropertyAccessors.has(type, "feature") && !PropertyAccessors.has(type, "notFeature")) {
+			return new NodeAttributesWrapper(chemicalModificationsSet);
+		}
 
 		// if we are dealing with participant processes (interactions
 		// or complexes), we have to go through the participants to get the
@@ -402,8 +830,10 @@ public class BioPaxMapper {
 		Collection<?> modificationFeatures = getValues(participantElement, "feature");
 		if (modificationFeatures != null) {
 			for (Object modification : modificationFeatures) {
-				if (modification != null) {
-					Object value = getValue((BioPAXElement) modification, "modificationType");
+				// (e.g., a BindingFeature has no modificationType)
+				if (modification != null && PropertyAccessors.has(
+						((BioPAXElement) modification).getModelInterface(), "modificationType")) {
+					Object value = PropertyAccessors.get((BioPAXElement) modification, "modificationType");
 					if (value != null) {
 						String mod = value.toString();
 						//remove the ClassName_ prefix and square braces -
@@ -417,8 +847,10 @@ public class BioPaxMapper {
 		Collection<?> modificationNotFeatures = getValues(participantElement, "notFeature");
 		if (modificationNotFeatures != null) {
 			for (Object modification : modificationNotFeatures) {
-				if (modification != null) {
-					Object value = getValue((BioPAXElement) modification, "modificationType");
+				// (e.g., a BindingFeature has no modificationType)
+				if (modification != null && PropertyAccessors.has(
+						((BioPAXElement) modification).getModelInterface(), "modificationType")) {
+					Object value = PropertyAccessors.get((BioPAXElement) modification, "modificationType");
 					if (value != null) {
 						String mod = value.toString();
 						//remove the ClassName_ prefix and square braces;
@@ -434,7 +866,8 @@ public class BioPaxMapper {
 	}
 
 	
-    private static void createExtraXrefAttributes(BioPAXElement resource, CyNetwork network, CyNode node) {
+    private static void createExtraXrefAttributes(BioPAXElement resource, ElementAttributes attributes,
+    		Map<String, String> xrefLinks) {
 		
 		// try getting the primary UniProt ID from the URI
     	// to create UNIPROT attribute
@@ -450,102 +883,125 @@ public class BioPaxMapper {
     		if(u.startsWith("http://identifiers.org/uniprot")) { 
 				// /uniprot.isoform/ works here as well
 				String id = u.substring(u.lastIndexOf('/')+1);
-				AttributeUtil.set(network, node, "UNIPROT", id, String.class);
+				attributes.set("UNIPROT", id);
 			}
     	}
      	
-    	//add special simple (String) uniprot, ncbi gene, gene symbol attributes
-    	// (do not create those for generic ER/PE, - impossible to define a "primary" ID)
-		for (Xref link : getXRefs(resource, Xref.class, false)) {
-			if(link.getDb() == null || link.getDb().isEmpty()
-					|| link.getId() == null || link.getId().isEmpty())
-				continue; // too bad (data issue...); skip it			
-			// try to detect and add several important ID attributes first
-			// (it works better, if at all, when the biopax model was normalized)
-			//chances are, if data were normalized, we get some more primary accession IDs:
-			createSpecialXrefAttribute(resource, network, node, link);
-		}
-    	
     	// ihop links
 		String stringRef = ihopLinks(resource);
 		if (stringRef != null) {
-			AttributeUtil.set(network, node, CyNetwork.HIDDEN_ATTRS, BIOPAX_IHOP_LINKS, stringRef, String.class);
+			attributes.setHidden(BIOPAX_IHOP_LINKS, stringRef);
 		}
-
-		//these collections, one per xref class, are to store standard IDs only (no db name)
-		List<String> uniXrefList = new ArrayList<String>();
-		List<String> relXrefList = new ArrayList<String>();
-		List<String> pubXrefList = new ArrayList<String>();
-		//next are for (hidden) list attributes that contain more info about the xref
-		List<String> uniLinkList = new ArrayList<String>();
-		List<String> relLinkList = new ArrayList<String>();
-		List<String> pubLinkList = new ArrayList<String>();
 		
-		// create several ID-list attributes from xrefs 
+		// in one pass, add special simple (String) uniprot, ncbi gene, gene symbol attributes
+		// (from the element's and its ER's xrefs; not for the generic ER/PE members - 
+		// impossible to define a "primary" ID), and create several ID-list attributes 
 		// (including from members of/if it's a generic ER/PE)
-		for (Xref link : getXRefs(resource, Xref.class, true)) {
-			if(link.getDb() == null || link.getDb().isEmpty()
-					|| link.getId() == null || link.getId().isEmpty())
-				continue; // too bad (data issue...); skip it
-			
-			// then, for any xref, collect IDs
-			StringBuffer temp = new StringBuffer();			
-			temp.append(ExternalLinkUtil.createLink(link.getDb(), link.getId()));
-
-			String str;
-			
-			if(link instanceof UnificationXref) {
-				str = temp.toString();
-				if(!uniLinkList.contains(str))
-					uniLinkList.add(str);
-
-				str = link.toString();
-				if(!uniXrefList.contains(str))
-					uniXrefList.add(str);
-			}
-			else if(link instanceof PublicationXref) {
-
-				PublicationXref xl = (PublicationXref) link;
-				temp.append(" ");
-				if (!xl.getAuthor().isEmpty()) {
-					temp.append(xl.getAuthor().toString() + " et al., ");
-				}
-				if (xl.getTitle() != null) {
-					temp.append(xl.getTitle());
-				}
-				if (!xl.getSource().isEmpty()) {
-					temp.append(" (" + xl.getSource().toString());
-					if (xl.getYear() > 0) {
-						temp.append(", " + xl.getYear());
-					}
-					temp.append(")");
+		final XrefLists lists = new XrefLists(xrefLinks);
+		if(resource instanceof XReferrable)
+			lists.addAll(((XReferrable) resource).getXref(), attributes, true);
+		
+		EntityReference entityReference = null;
+		if(resource instanceof SimplePhysicalEntity)
+			entityReference = ((SimplePhysicalEntity) resource).getEntityReference();
+		else if(resource instanceof EntityReference)
+			entityReference = (EntityReference) resource;
+		if(entityReference != null) {
+			if(entityReference != resource)
+				lists.addAll(entityReference.getXref(), attributes, true);
+			//add xrefs from all member ERs (though, not going into members' members...)
+			for(EntityReference memberEntityReference : entityReference.getMemberEntityReference())
+				lists.addAll(memberEntityReference.getXref(), attributes, false);
+		}
+		
+		attributes.set(BIOPAX_UNIFICATION, new ArrayList<String>(lists.uniXrefs));
+		attributes.set(BIOPAX_RELATIONSHIP, new ArrayList<String>(lists.relXrefs));
+		attributes.set(BIOPAX_PUBLICATION, new ArrayList<String>(lists.pubXrefs));
+		attributes.setHidden(BIOPAX_UNIFICATION_REFERENCES, new ArrayList<String>(lists.uniLinks));
+		attributes.setHidden(BIOPAX_RELATIONSHIP_REFERENCES, new ArrayList<String>(lists.relLinks));
+		attributes.setHidden(BIOPAX_PUBLICATION_REFERENCES, new ArrayList<String>(lists.pubLinks));
+	}
+	
+	/*
+	 * Distinct xref IDs and links (in the order found), one set per xref class.
+	 */
+	private static final class XrefLists {
+		//these are to store standard IDs only (no db name)
+		final Set<String> uniXrefs = new LinkedHashSet<String>();
+		final Set<String> relXrefs = new LinkedHashSet<String>();
+		final Set<String> pubXrefs = new LinkedHashSet<String>();
+		//next are for (hidden) list attributes that contain more info about the xref
+		final Set<String> uniLinks = new LinkedHashSet<String>();
+		final Set<String> relLinks = new LinkedHashSet<String>();
+		final Set<String> pubLinks = new LinkedHashSet<String>();
+		// formatted links by xref URI
+		final Map<String, String> cache;
+		
+		XrefLists(Map<String, String> cache) {
+			this.cache = cache;
+		}
+		
+		void addAll(Set<Xref> xrefs, ElementAttributes attributes, boolean special) {
+			for (Xref link : xrefs) {
+				if(link.getDb() == null || link.getDb().isEmpty()
+						|| link.getId() == null || link.getId().isEmpty())
+					continue; // too bad (data issue...); skip it
+				
+				// try to detect and add several important ID attributes first
+				// (it works better, if at all, when the biopax model was normalized)
+				if(special)
+					createSpecialXrefAttribute(attributes, link);
+				
+				// then, for any xref, collect IDs
+				if(link instanceof UnificationXref) {
+					uniLinks.add(getLink(link));
+					uniXrefs.add(link.toString());
+				} else if(link instanceof PublicationXref) {
+					pubLinks.add(getLink(link));
+					pubXrefs.add(link.toString());
+				} else if(link instanceof RelationshipXref) {
+					relLinks.add(getLink(link));
+					relXrefs.add(link.toString());
 				}
-
-				str = temp.toString();
-				if(!pubLinkList.contains(str))
-					pubLinkList.add(str);
-
-				str = link.toString();
-				if(!pubXrefList.contains(str))
-					pubXrefList.add(str);
-			}
-			else if(link instanceof RelationshipXref) {
-				str = temp.toString();
-				if(!relLinkList.contains(str))
-					relLinkList.add(str);
-
-				str = link.toString();
-				if(!relXrefList.contains(str))
-					relXrefList.add(str);
 			}
 		}
 		
-		AttributeUtil.set(network, node, BIOPAX_UNIFICATION, uniXrefList, String.class);
-		AttributeUtil.set(network, node, BIOPAX_RELATIONSHIP, relXrefList, String.class);
-		AttributeUtil.set(network, node, BIOPAX_PUBLICATION, pubXrefList, String.class);
-		AttributeUtil.set(network, node, CyNetwork.HIDDEN_ATTRS, BIOPAX_UNIFICATION_REFERENCES, uniLinkList, String.class);
-		AttributeUtil.set(network, node, CyNetwork.HIDDEN_ATTRS, BIOPAX_RELATIONSHIP_REFERENCES, relLinkList, String.class);
-		AttributeUtil.set(network, node, CyNetwork.HIDDEN_ATTRS, BIOPAX_PUBLICATION_REFERENCES, pubLinkList, String.class);	
+		// xrefs are shared by many elements; the links are made once per import
+		private String getLink(Xref xref) {
+			String link = cache.get(xref.getUri());
+			if(link == null) {
+				link = createXrefLink(xref);
+				cache.putIfAbsent(xref.getUri(), link);
+			}
+			return link;
+		}
+	}
+	
+	/*
+	 * Creates the html link to the xref's db/id 
+	 * (followed by the authors, title, source and year for a publication).
+	 */
+	private static String createXrefLink(Xref link) {
+		StringBuilder temp = new StringBuilder();			
+		temp.append(ExternalLinkUtil.createLink(link.getDb(), link.getId()));
+		if(link instanceof PublicationXref) {
+			PublicationXref xl = (PublicationXref) link;
+			temp.append(" ");
+			if (!xl.getAuthor().isEmpty()) {
+				temp.append(xl.getAuthor().toString()).append(" et al., ");
+			}
+			if (xl.getTitle() != null) {
+				temp.append(xl.getTitle());
+			}
+			if (!xl.getSource().isEmpty()) {
+				temp.append(" (").append(xl.getSource().toString());
+				if (xl.getYear() > 0) {
+					temp.append(", ").append(xl.getYear());
+				}
+				temp.append(")");
+			}
+		}
+		return temp.toString();
 	}
 
     
@@ -557,118 +1013,79 @@ public class BioPaxMapper {
 	 * when the biopax model was normalized). But let's at least have one
 	 * UniProt ID (by chance, if ther're many, unless it's already added).
      */
-	private static void createSpecialXrefAttribute(BioPAXElement resource, CyNetwork network, CyNode node, Xref link) {
+	private static void createSpecialXrefAttribute(ElementAttributes attributes, Xref link) {
 		final String db = link.getDb().toUpperCase().trim();
 		final String id = link.getId().trim();
 		if(db.equalsIgnoreCase("HGNC SYMBOL") //- official primary db name
 				|| db.startsWith("HGNC") || db.startsWith("HUGO GENE")
 				|| db.startsWith("GENE SYMBOL") || db.startsWith("GENE NAME")) {
-			String exists = network.getRow(node).get("GENE SYMBOL", String.class);
+			Object exists = attributes.get("GENE SYMBOL");
 			//won't replace any existing value (added first)
 			if (exists == null && !id.startsWith("HGNC:")) //ignore HGNC:12345 IDs
-				AttributeUtil.set(network, node, "GENE SYMBOL", id, String.class);
+				attributes.set("GENE SYMBOL", id);
 			
 		} else if(db.equalsIgnoreCase("NCBI GENE") //main (official) db name
 				|| db.equalsIgnoreCase("ENTREZ GENE") || db.equalsIgnoreCase("GENE ID")) {
-			String exists = network.getRow(node).get("NCBI GENE", String.class);
+			Object exists = attributes.get("NCBI GENE");
 			//won't replace any existing value (added first)
 			if (exists == null)
-				AttributeUtil.set(network, node, "NCBI GENE", id, String.class);
+				attributes.set("NCBI GENE", id);
 			
 		} else if(db.startsWith("UNIPROT") 
 				|| db.startsWith("SWISSPROT") || db.startsWith("SWISS-PROT")) {
-			String exists = network.getRow(node).get("UNIPROT", String.class);
+			Object exists = attributes.get("UNIPROT");
 			//won't replace if found
 			if (exists == null)
-				AttributeUtil.set(network, node, "UNIPROT", id, String.class);
+				attributes.set("UNIPROT", id);
 			
 		}
 	}
 
 
-	public static void createAttributesFromProperties(final BioPAXElement element, final Model model,
-			final CyNode node, final CyNetwork network) 
+	/**
+	 * Generates Cytoscape node attributes from the BioPAX element's properties.
+	 * 
+	 * This does not modify the model or any network and can run
+	 * in several threads at once.
+	 * 
+	 * @param element BioPAX element
+	 * @param model BioPAX model
+	 * @param elementName the element's name (see getName)
+	 * @param xrefLinks cache of the xref html links
+	 * @return attributes to set
+	 */
+	private static ElementAttributes getAttributes(final BioPAXElement element, final Model model, 
+			final String elementName, final Map<String, String> xrefLinks) 
 	{
-		@SuppressWarnings("rawtypes")
-		Filter<PropertyEditor> filter = new Filter<PropertyEditor>() {
-			@Override
-			// skips for entity-range properties (which map to edges rather than attributes!),
-			// and several utility classes ranges (for which we do not want generate attributes or do another way)
-			public boolean filter(PropertyEditor editor) {
-				boolean pass = true;
-				
-				final String prop = editor.getProperty();
-				if(editor instanceof ObjectPropertyEditor) {
-					Class<?> c = editor.getRange();
-					if( Entity.class.isAssignableFrom(c)
-						|| Stoichiometry.class.isAssignableFrom(c)
-						|| "nextStep".equals(prop) 
-						) {	
-						pass = false;; 
-					}
-				} else if("name".equals(prop))
-					pass = false;
-				
-				return pass;
-			}
-		};
+		final ElementAttributes attributes = getIdentityAttributes(element, elementName);
+		
+		// create the rest of attr. from the properties (see AttributePlan)
+		AttributePlan.of(element.getModelInterface()).execute(element, attributes);
+		
+        // create custom (convenience?) attributes, mainly - from xrefs
+		createExtraXrefAttributes(element, attributes, xrefLinks);
+		
+		return attributes;
+	}
+	
+	/**
+	 * Generates the most important node attributes, which the visual style 
+	 * and search depend on (URI, BIOPAX_TYPE, name, chemical modifications), 
+	 * from the BioPAX element.
+	 * 
+	 * @param element BioPAX element
+	 * @param elementName the element's name (see getName)
+	 * @return attributes to set
+	 */
+	private static ElementAttributes getIdentityAttributes(final BioPAXElement element, final String elementName) 
+	{
+		final ElementAttributes attributes = new ElementAttributes();
 		
-		@SuppressWarnings("unchecked")
-		AbstractTraverser bpeAutoMapper = new AbstractTraverser(SimpleEditorMap.L3, filter) 
-		{
-			final Stack<String> propPath = new Stack<String>();
-
-			@SuppressWarnings("rawtypes")
-			@Override
-			protected void visit(Object obj, BioPAXElement bpe, Model model,
-					PropertyEditor editor) 
-			{
-				if (obj != null && !editor.isUnknown(obj)) {
-					propPath.push(editor.getProperty());
-					final String attrName = StringUtils.join(propPath, "/");
-					String value = obj.toString();
-					if (!"".equalsIgnoreCase(value.toString().replaceAll("\\]|\\[", ""))) 
-					{
-						if (editor.isMultipleCardinality()) {
-							CyRow row = network.getRow(node);
-							List<String> vals = new ArrayList<String>();
-							// consider existing attribute values
-							if (row.isSet(attrName)) {
-								Class<?> listElementType = row.getTable().getColumn(attrName).getListElementType();
-								List prevList = row.getList(attrName, listElementType);
-								if(!prevList.contains(value)) prevList.add(value);
-							} else { //create
-								vals.add(value);
-								AttributeUtil.set(network, node, attrName, vals, String.class);
-							}
-						} else {
-							AttributeUtil.set(network, node, attrName, value, String.class);
-						}
-					}
-					
-					// currently, we don't map absolutely all BioPAX relationships to edges/attributes: 
-					// traverse deeper only if it's an object range property
-					// or single cardinality (- otherwise would 
-					// result with having too many/branchy Cy attributes)
-					if (editor instanceof ObjectPropertyEditor
-							&& !editor.isMultipleCardinality()) 
-					// this effectively prevents going into details for
-					// such objects as values of 'xref', 'memberEntityReference', 
-					// 'componentStoichiometry', etc. props.
-					{
-						traverse((BioPAXElement) obj, null);
-					}
-
-					propPath.pop();
-				}
-			}
-		};
-
 		// set the most important attributes
-		AttributeUtil.set(network, node, BIOPAX_URI, element.getUri(), String.class);
-		AttributeUtil.set(network, node, BIOPAX_ENTITY_TYPE, element.getModelInterface().getSimpleName(), String.class);
+		attributes.set(BIOPAX_URI, element.getUri());
+		attributes.set(BIOPAX_ENTITY_TYPE, element.getModelInterface().getSimpleName());
 
-		String name = getName(element);
+		String name = elementName;
 		
 		if (!(element instanceof Interaction)) {
 			// get chemical modification & cellular location attributes
@@ -681,9 +1098,9 @@ public class BioPaxMapper {
 				List<String> list = chemicalModificationsWrapper.asList();
 				if (list != null && !list.isEmpty()) {
 					// store chemical modifications to be used by the view details panel, node attribute browser, Quick Find
-					AttributeUtil.set(network, node, BIOPAX_CHEMICAL_MODIFICATIONS_LIST, list, String.class);
+					attributes.set(BIOPAX_CHEMICAL_MODIFICATIONS_LIST, list);
 					if (list.contains(PHOSPHORYLATION_SITE)) {
-						AttributeUtil.set(network, node, BIOPAX_ENTITY_TYPE, PROTEIN_PHOSPHORYLATED, String.class);
+						attributes.set(BIOPAX_ENTITY_TYPE, PROTEIN_PHOSPHORYLATED);
 					}
 				}
 			}
@@ -699,13 +1116,9 @@ public class BioPaxMapper {
 			}
 		}
 		// update the name (also used for node's label and quick find)
-		AttributeUtil.set(network, node, CyNetwork.NAME, name, String.class);		
-		
-		// traverse to create the rest of attr.
-		bpeAutoMapper.traverse(element, model);
+		attributes.set(CyNetwork.NAME, name);		
 		
-        // create custom (convenience?) attributes, mainly - from xrefs
-		createExtraXrefAttributes(element, network, node);
+		return attributes;
 	}
 
 	
@@ -786,23 +1199,78 @@ public class BioPaxMapper {
 
 
 	/**
-	 * Import BioPAX data into a new in-memory model.
-	 *
-	 * @param in BioPAX data file name.
-	 * @return BioPaxUtil new instance (containing the imported BioPAX data)
-	 * @throws FileNotFoundException 
+	 * Parses BioPAX (RDF/XML) data into a new in-memory model 
+	 * (see also {@link #upgrade(Model)} and {@link #fixDisplayName(Model, int, BooleanSupplier)}).
+	 * 
+	 * @param in BioPAX data
+	 * @return new model, or null when the data cannot be parsed
 	 */
-	public static Model read(final InputStream in) throws FileNotFoundException {
-		Model model = convertFromOwl(in);
-		// immediately convert to BioPAX Level3 model
-		if(model != null && BioPAXLevel.L2.equals(model.getLevel())) {
-			model = new LevelUpgrader().filter(model);
+	public static Model parse(final InputStream in) {
+		return convertFromOwl(in);
+	}
+	
+	/**
+	 * Converts a BioPAX Level2 model to Level3.
+	 * 
+	 * @param model BioPAX model (or null)
+	 * @return new Level3 model, or the same one if it's not Level2
+	 */
+	public static Model upgrade(Model model) {
+		return (model != null && BioPAXLevel.L2.equals(model.getLevel())) 
+			? new LevelUpgrader().filter(model) : model;
+	}
+	
+	/**
+	 * Imports all the BioPAX files from a zip archive into one in-memory model.
+	 * 
+	 * The entries are parsed one by one, and each is merged into the result right away, 
+	 * so that the elements having the same URI (e.g., entity references, small molecules,
+	 * xrefs shared by the files) are kept only once, and at most one entry's model
+	 * is in memory in addition to the result. Entries that are not BioPAX are skipped.
+	 * Like {@link #parse(InputStream)}, this does not fix display names 
+	 * (see {@link #fixDisplayName(Model, int, BooleanSupplier)}).
+	 * 
+	 * @param in zip archive data
+	 * @return merged model or null (when there is no BioPAX data)
+	 * @throws IOException when the archive cannot be read
+	 */
+	public static Model readArchive(final InputStream in) throws IOException {
+		final ZipInputStream zip = new ZipInputStream(in);
+		final SimpleMerger merger = new SimpleMerger(SimpleEditorMap.L3);
+		// the parser closes its input, but there are more entries to read
+		final InputStream entryData = new FilterInputStream(zip) {
+			@Override
+			public void close() throws IOException {
+				zip.closeEntry();
+			}
+		};
+		
+		Model merged = null;
+		int files = 0;
+		for(ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+			if(entry.isDirectory() || entry.getName().startsWith("__MACOSX/"))
+				continue;
+			
+			Model model = upgrade(convertFromOwl(CompressionUtil.decompress(entryData)));
+			if(model == null) {
+				log.warn("readArchive: skipped " + entry.getName() + " (no BioPAX data)");
+				continue;
+			}
+			
+			if(merged == null) {
+				merged = model;
+			} else {
+				merger.merge(merged, model);
+			}
+			files++;
 		}
 		
-		if(model != null)
-			fixDisplayName(model);
+		if(merged != null) {
+			log.info("readArchive: merged " + files + " BioPAX files into the model of " 
+					+ merged.getObjects().size() + " elements");
+		}
 		
-		return model;
+		return merged;
 	}
 	
 	private static Model convertFromOwl(final InputStream stream) {
@@ -836,9 +1304,33 @@ public class BioPaxMapper {
 		if(bpe instanceof Named)
 			nodeName = ((Named)bpe).getDisplayName();
 
-		return (nodeName == null || nodeName.isEmpty())
-				? bpe.getUri()
-					: StringEscapeUtils.unescapeHtml4(nodeName);
+		if(nodeName == null || nodeName.isEmpty())
+			return bpe.getUri();
+		
+		// there is nothing to unescape without '&' (most names)
+		return (nodeName.indexOf('&') < 0) ? nodeName : StringEscapeUtils.unescapeHtml4(nodeName);
+	}
+	
+	/*
+	 * Gets the element's name (see getName) once per import.
+	 */
+	private String name(BioPAXElement bpe) {
+		String name = names.get(bpe.getUri());
+		if(name == null) {
+			name = getName(bpe);
+			names.putIfAbsent(bpe.getUri(), name);
+		}
+		return name;
+	}
+	
+	/**
+	 * Gets the model name (see {@link #getName(Model)}) 
+	 * using and caching the element names for the network mapping.
+	 * 
+	 * @return model name
+	 */
+	public String getModelName() {
+		return getName(model, this::name);
 	}
 
 	
@@ -852,20 +1344,14 @@ public class BioPaxMapper {
 	 */
 	public static Object getValue(BioPAXElement bpe, String... properties) {
 		for (String property : properties) {
+			// a missing property is often OK, as we guess L2 or L3 properties (then it's null)
 			try {
-				Method method = bpe.getModelInterface().getMethod(
-						"get" + property.substring(0, 1).toUpperCase()
-								+ property.substring(1).replace('-', '_'));
-				Object invoke = method.invoke(bpe);
+				Object invoke = PropertyAccessors.get(bpe, property);
 				if (invoke != null) {
 					return invoke;
 				}
-//				PropertyEditor editor = SimpleEditorMap.L3
-//					.getEditorForProperty(property, bpe.getModelInterface());
-//				return editor.getValueFromBean(bpe); // is always a Set!
-			} catch (Exception e) {
+			} catch (RuntimeException e) {
 				if(log.isDebugEnabled()) {
-					// this is often OK, as we guess L2 or L3 properties...
 					log.debug("Ignore property " + property + " for " 
 						+ bpe.getUri() + ": " + e);
 				}
@@ -887,11 +1373,7 @@ public class BioPaxMapper {
 		
 		for (String property : properties) {
 			try {
-				Method method = bpe.getModelInterface().getMethod(
-						"get" + property.substring(0, 1).toUpperCase()
-								+ property.substring(1).replace('-', '_'));
-				
-				Object invoke = method.invoke(bpe);
+				Object invoke = PropertyAccessors.get(bpe, property);
 				if (invoke != null) {
 					// return value can be collection or Object
 					if (invoke instanceof Collection) {
@@ -900,7 +1382,7 @@ public class BioPaxMapper {
 						col.add(invoke);
 					}
 				}
-			} catch (Exception e) {
+			} catch (RuntimeException e) {
 				if(log.isDebugEnabled()) {
 					log.debug("Cannot get value of '" + property + "' for "
 						+ bpe.getUri() + ": " + e);
@@ -953,34 +1435,6 @@ public class BioPaxMapper {
 	}
 
 	
-	private static <T extends Xref> List<T> getXRefs(BioPAXElement bpe, Class<T> xrefClass, 
-			boolean withMembersIfGeneric) {
-		if(bpe instanceof XReferrable) {
-			List<T> erefs = new ArrayList<T>();
-			erefs.addAll(new ClassFilterSet<Xref,T>( ((XReferrable)bpe).getXref(), xrefClass) );
-			if(bpe instanceof SimplePhysicalEntity && 
-				((SimplePhysicalEntity)bpe).getEntityReference() != null)
-			{
-				EntityReference entityReference = ((SimplePhysicalEntity)bpe).getEntityReference();
-				erefs.addAll(new ClassFilterSet<Xref,T>(entityReference.getXref(), xrefClass) );
-				//add xrefs from all member ERs (though, not going into members' members...)
-				if(withMembersIfGeneric)
-					for(EntityReference memberEntityReference : entityReference.getMemberEntityReference())
-						erefs.addAll(new ClassFilterSet<Xref,T>(memberEntityReference.getXref(), xrefClass) );
-			} else if(bpe instanceof EntityReference) {
-				erefs.addAll(new ClassFilterSet<Xref,T>(((EntityReference)bpe).getXref(), xrefClass) );
-				//add xrefs from all member ERs (though, not going into members' members...)
-				if(withMembersIfGeneric)
-					for(EntityReference memberEntityReference : ((EntityReference)bpe).getMemberEntityReference())
-						erefs.addAll(new ClassFilterSet<Xref,T>(memberEntityReference.getXref(), xrefClass) );
-			}
-			
-			return erefs;
-		}
-		return new ArrayList<T>();
-	}
-
-	
 	/**
 	 * Gets the joint set of all known subclasses of the specified BioPAX types.
 	 * 
@@ -1006,17 +1460,21 @@ public class BioPaxMapper {
 	 * @return
 	 */
 	public static String getName(Model model) {		
+		return getName(model, BioPaxMapper::getName);
+	}
+	
+	private static String getName(Model model, Function<BioPAXElement, String> names) {		
 		StringBuffer modelName = new StringBuffer();
 		
 		Collection<Pathway> pws = ModelUtils.getRootElements(model, Pathway.class);
 		for(Pathway pw: pws) {
-				modelName.append(" ").append(getName(pw)); 
+				modelName.append(" ").append(names.apply(pw)); 
 		}
 		
 		if(modelName.length()==0) {
 			Collection<Interaction> itrs = ModelUtils.getRootElements(model, Interaction.class);
 			for(Interaction it: itrs) {
-				modelName.append(" ").append(getName(it));
+				modelName.append(" ").append(names.apply(it));
 			}	
 		}
 		
@@ -1055,15 +1513,32 @@ public class BioPaxMapper {
 
 	/**
 	 * For all Named biopax objects, sets 'displayName'
-	 * from other names if it was missing.
+	 * from other names if it was missing; stops 
+	 * (throws {@link CancellationException}) as soon as cancelled.
 	 * 
-	 * @param model
+	 * This is done in two passes, each partitioned so that an object 
+	 * is only modified by one worker thread: first - the elements 
+	 * that have no display name; then (when all the entity references are fixed) -
+	 * simple physical entities, by their (only) entity reference.
+	 * 
+	 * @param model BioPAX model
+	 * @param threads number of threads (1 - do in the current thread)
+	 * @param cancelled cancel flag (or null)
 	 */
-	public static void fixDisplayName(Model model) {
+	public static void fixDisplayName(Model model, int threads, BooleanSupplier cancelled) {
 		log.info("Trying to auto-set displayName for all BioPAX elements");
-		// where it's null, set to the shortest name if possible
+		final List<Named> unnamed = new ArrayList<Named>();
 		for (Named e : model.getObjects(Named.class)) {
-			if (e.getDisplayName() == null) {
+			if (e.getDisplayName() == null)
+				unnamed.add(e);
+		}
+		final List<EntityReference> refs = new ArrayList<EntityReference>(model.getObjects(EntityReference.class));
+		
+		final ExecutorService pool = (threads > 1 && unnamed.size() + refs.size() > FIX_NAMES_CHUNK_SIZE)
+			? Workers.newPool("biopax-names", threads) : null;
+		try {
+			// where it's null, set to the shortest name if possible
+			Workers.forEach(pool, unnamed, FIX_NAMES_CHUNK_SIZE, e -> {
 				if (e.getStandardName() != null) {
 					e.setDisplayName(e.getStandardName());
 				} else if (!e.getName().isEmpty()) {
@@ -1074,64 +1549,104 @@ public class BioPaxMapper {
 					}
 					e.setDisplayName(dsp);
 				}
-			}
-		}
-		// if required, set PE name to (already fixed) ER's name...
-		for(EntityReference er : model.getObjects(EntityReference.class)) {
-			for(SimplePhysicalEntity spe : er.getEntityReferenceOf()) {
-				if(spe.getDisplayName() == null || spe.getDisplayName().trim().length() == 0) {
-					if(er.getDisplayName() != null && er.getDisplayName().trim().length() > 0) {
+			}, cancelled);
+			
+			// if required, set PE name to (already fixed) ER's name...
+			Workers.forEach(pool, refs, FIX_NAMES_CHUNK_SIZE, er -> {
+				if(er.getDisplayName() == null || er.getDisplayName().trim().length() == 0)
+					return;
+				for(SimplePhysicalEntity spe : er.getEntityReferenceOf()) {
+					if(spe.getDisplayName() == null || spe.getDisplayName().trim().length() == 0) {
 						spe.setDisplayName(er.getDisplayName());
 					}
 				}
-			}
+			}, cancelled);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BioPaxReaderError("Interrupted while setting the display names");
+		} finally {
+			if(pool != null)
+				pool.shutdownNow();
 		}
 	}
 
 	/**
-	 * Converts a BioPAX Model to the
-	 * custom Simple Interactions Format (SIF), where each row
-	 * describes an inferred bio interaction using tab-separated columns:
-	 * URI1, interaction_type, URI2, data_sources, PMIDs, pathway_names
-	 * (the last three columns may contain semicolon-separated multiple values).
+	 * Normalizes the model and searches for the binary (SIF) interactions,
+	 * one SIF rule per thread (the pattern search does not modify the model).
 	 * 
-	 * @param m biopax model
-	 * @param sifTypes SIF rules/patterns to use
-	 * @param sifOutputStream output stream for the SIF entries
-	 * @throws IOException when data cannot be written, etc.
+	 * @param m BioPAX model
+	 * @param sifTypes SIF rules/patterns to apply/search
+	 * @param threads max. number of rules to search at the same time
+	 * @param monitor progress/cancel monitor (or null); when cancelled, 
+	 *                  the interactions found so far are returned
+	 * @return sorted list of the binary interactions
 	 */
-	public static void convertToCustomSIF(
-			Model m,
-			SIFType[] sifTypes, //SIF rules/patterns to apply/search
-			OutputStream sifOutputStream) throws IOException
+	public static List<SIFInteraction> searchSIF(final Model m, SIFType[] sifTypes, 
+			int threads, final ImportMonitor monitor)
 	{
-		//merge interactions with exactly same properties...
-		ModelUtils.mergeEquivalentInteractions(m);
-		//some extra normalization to get better conversion results
-		ModelUtils.normalizeGenerics(m); //TODO not sure want to apply this...
-		for(SimplePhysicalEntity spe : new HashSet<SimplePhysicalEntity>(m.getObjects(SimplePhysicalEntity.class))) {
-			ModelUtils.addMissingEntityReference(m, spe);
-		}
+		final List<SIFInteraction> interList = new ArrayList<SIFInteraction>();
+		searchSIF(m, sifTypes, threads, monitor, sif -> interList.add(sif));
+		Collections.sort(interList);
+		return interList;
+	}
+	
+	/**
+	 * Normalizes the model and searches for the binary (SIF) interactions,
+	 * one SIF rule per thread (using the Paxtools {@link SIFSearcher}; 
+	 * the pattern search does not modify the model),
+	 * and passes the interactions found by each rule to the consumer 
+	 * as soon as that rule is done (not sorted).
+	 * 
+	 * Interactions of different types are never equal; so there are no 
+	 * duplicates across the rules to merge.
+	 * 
+	 * A rule's search cannot be stopped; when cancelled, this returns
+	 * without waiting for the rules being searched (their results are dropped).
+	 * 
+	 * @param m BioPAX model
+	 * @param sifTypes SIF rules/patterns to apply/search
+	 * @param threads max. number of rules to search at the same time
+	 * @param monitor progress (rules done) and cancel monitor (or null); 
+	 *                when cancelled, no more interactions are passed
+	 * @param consumer receives the interactions (in the calling thread)
+	 * @return number of the interactions passed to the consumer
+	 */
+	public static int searchSIF(final Model m, SIFType[] sifTypes, 
+			int threads, ImportMonitor monitor, final Consumer<SIFInteraction> consumer)
+	{
+		final ImportMonitor cancelled = (monitor != null) ? monitor : ImportMonitor.none();
+		
+		//normalize (unless the model was normalized already, e.g., before it was cached)
+		ModelNormalizer.normalize(m, SIF_NORMALIZATION);
 
 		//convert to binary interactions
-		SIFSearcher sifSearcher = new SIFSearcher(new SimpleIDFetcher(), sifTypes);
-		Set<SIFInteraction> binaryInts = sifSearcher.searchSIF(m);
-		// write interactions and some of their attributes (publications, datasources, pathways)
-		SIFToText stt = new CustomFormat(
-				OutputColumn.Type.RESOURCE.name(),
-				OutputColumn.Type.PUBMED.name(),
-				OutputColumn.Type.PATHWAY.name()
-		);
-
-		if (!binaryInts.isEmpty()) {
-			List<SIFInteraction> interList = new ArrayList<SIFInteraction>(binaryInts);
-			Collections.sort(interList);
-			OutputStreamWriter writer = new OutputStreamWriter(sifOutputStream);
-//			writer.write("PARTICIPANT_A\tINTERACTION_TYPE\tPARTICIPANT_B\tINTERACTION_DATA_SOURCE\tINTERACTION_PUBMED_ID\tPATHWAY_NAMES");
-			for (SIFInteraction inter : interList)
-				writer.write(stt.convert(inter)+"\n");
-			writer.close();
+		final int[] count = new int[2];
+		final Function<SIFType, Set<SIFInteraction>> search = 
+			type -> new SIFSearcher(new SimpleIDFetcher(), type).searchSIF(m);
+		final BiConsumer<SIFType, Set<SIFInteraction>> emit = (type, found) -> {
+			log.debug("SIF rule " + type.getTag() + ": " + found.size() + " interactions");
+			for(SIFInteraction sif : found) {
+				cancelled.checkCancelled();
+				consumer.accept(sif);
+				count[0]++;
+			}
+			cancelled.setProgress((double) ++count[1] / sifTypes.length);
+		};
+		
+		// (also a single rule is searched in the pool, so that this thread can stop waiting)
+		ExecutorService pool = Workers.newPool("biopax-sif", Math.max(1, Math.min(threads, sifTypes.length)));
+		try {
+			Workers.map(pool, Arrays.asList(sifTypes), 1, search, emit, cancelled);
+		} catch (CancellationException e) {
+			log.info("SIF search cancelled");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BioPaxReaderError("Interrupted while searching for SIF interactions");
+		} finally {
+			pool.shutdownNow();
 		}
+		
+		return count[0];
 	}
 
     /**
@@ -1142,7 +1657,7 @@ public class BioPaxMapper {
      */
     public static void convertToSBGN(final Model m, final OutputStream out) {
     	
-		ModelUtils.mergeEquivalentInteractions(m);
+		ModelNormalizer.normalize(m, SBGN_NORMALIZATION);
     	
 		//fails when not using this hack (due to another jaxb library version at runtime...)
 //    	ClassLoaderHack.runWithHack(new Runnable() {
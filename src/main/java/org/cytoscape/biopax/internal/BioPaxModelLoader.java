@@ -0,0 +1,320 @@
+package org.cytoscape.biopax.internal;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Core App.
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import org.biopax.paxtools.model.BioPAXLevel;
+import org.biopax.paxtools.model.Model;
+import org.cytoscape.biopax.internal.util.BioPaxReaderError;
+import org.cytoscape.biopax.internal.util.CompressionUtil;
+import org.cytoscape.biopax.internal.util.MappedFileInputStream;
+import org.cytoscape.biopax.internal.util.ModelCache;
+import org.cytoscape.biopax.internal.util.ModelNormalizer;
+import org.cytoscape.biopax.internal.util.ModelNormalizer.Step;
+import org.cytoscape.biopax.internal.util.PipelineStats;
+import org.cytoscape.biopax.internal.util.SpooledFile;
+import org.cytoscape.work.TaskMonitor;
+
+/**
+ * Loads a BioPAX model from the spooled input data (or from the model cache),
+ * in a worker thread of the shared loader pool, which is started by the reader task 
+ * that then waits for the model (reporting progress, checking whether cancelled);
+ * so that the pool limits how many inputs are parsed at the same time 
+ * when several imports are running.
+ * 
+ * @author rodche
+ */
+final class BioPaxModelLoader implements Callable<Model> {
+	
+	private static final long POLL_MILLIS = 50L;
+	
+	private final SpooledFile input;
+	private final ModelCache modelCache;
+	private final PipelineStats stats;
+	private final int threads;
+	
+	private volatile String status;
+	private volatile boolean namesFixed;
+	private volatile Step[] normalization = {};
+	private volatile MappedFileInputStream stream;
+	private volatile boolean cancelled;
+	private Future<Model> future;
+	// when the model is read by the task's thread
+	private TaskMonitor taskMonitor;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param input biopax data (temporary file copy of the input stream)
+	 * @param inputName a file or pathway name
+	 * @param modelCache cache of the models previously read from the same data
+	 * @param threads number of threads to fix display names with (before caching the model)
+	 */
+	BioPaxModelLoader(SpooledFile input, String inputName, ModelCache modelCache, int threads) {
+		this.input = input;
+		this.modelCache = modelCache;
+		this.threads = threads;
+		this.stats = new PipelineStats(inputName);
+		this.status = "Waiting to read BioPAX data (" + (input.length() >> 20) + " Mb)...";
+	}
+	
+	/**
+	 * Starts loading the model using the executor
+	 * (or does nothing when the executor is shut down - 
+	 * then {@link #get(TaskMonitor, BooleanSupplier)} loads it).
+	 * 
+	 * When the cache is enabled, the model is normalized before it is cached 
+	 * (and a normalized model is cached separately from the original one),
+	 * so that converting it to SIF or SBGN again does not repeat the steps.
+	 * 
+	 * @param pool executor
+	 * @param normalization steps to apply before caching the model (can be none)
+	 */
+	synchronized void start(ExecutorService pool, Step... normalization) {
+		if(future == null) {
+			this.normalization = normalization;
+			try {
+				future = pool.submit(this);
+			} catch (RejectedExecutionException e) {
+				// read in the task's thread
+			}
+		}
+	}
+	
+	/**
+	 * @return statistics of the import stages (loading and the next ones)
+	 */
+	PipelineStats getStats() {
+		return stats;
+	}
+	
+	/**
+	 * @return whether the missing display names have been set already 
+	 *         (the model is from the cache, or it has been cached)
+	 */
+	boolean isNamesFixed() {
+		return namesFixed;
+	}
+	
+	@Override
+	public Model call() {
+		try {
+			if(cancelled) 
+				return null;
+			
+			// import BioPAX data into a new in-memory model (unless the same data were read before)
+			final Step[] steps = normalization;
+			final String key = input.getContentHash();
+			final String normalizedKey = cacheKey(key, steps);
+			PipelineStats.Stage stage = stats.start("cache lookup");
+			Model model = modelCache.get(normalizedKey);
+			if(model == null && steps.length > 0) {
+				// the original model, cached by another mode import, can be normalized now
+				model = modelCache.get(key);
+			} else if(model != null) {
+				ModelNormalizer.setApplied(model, steps);
+			}
+			stage.stop((model == null) ? 0 : model.getObjects().size());
+			if(model != null) {
+				// (only the models with fixed display names are cached)
+				namesFixed = true;
+				if(!ModelNormalizer.getApplied(model).containsAll(Arrays.asList(steps))) 
+					normalizeAndCache(normalizedKey, model, steps);
+				return model;
+			}
+			
+			setStatus("Reading BioPAX data (" + (input.length() >> 20) + " Mb)...");
+			stage = stats.start("read");
+			boolean archive = false;
+			// gzip/bzip2 data are decompressed in another thread, ahead of the parser
+			// (closing the data stream stops that thread, also when parsing fails or is cancelled)
+			try (MappedFileInputStream in = input.open();
+					InputStream data = CompressionUtil.decompressAsync(in)) 
+			{
+				in.setTaskMonitor(taskMonitor);
+				stream = in;
+				// a zip archive of several BioPAX files is read into one (merged) model
+				archive = data.markSupported() && CompressionUtil.detect(data) == CompressionUtil.Format.ZIP;
+				model = (archive) ? BioPaxMapper.readArchive(data) : BioPaxMapper.parse(data);
+			} catch (Throwable e) {
+				if(cancelled)
+					return null;
+				throw new BioPaxReaderError("BioPAX reader failed to build a BioPAX model " +
+						"(check the data for syntax errors) - " + e);
+			}
+			
+			if(model != null) {
+				stage.stop(model.getObjects().size());
+				if(cancelled)
+					return null;
+				
+				// (the archive entries are already upgraded and merged)
+				if(!archive && BioPAXLevel.L2.equals(model.getLevel())) {
+					setStatus("Converting the BioPAX Level2 model to Level3...");
+					stage = stats.start("upgrade");
+					model = BioPaxMapper.upgrade(model);
+					stage.stop(model.getObjects().size());
+					if(cancelled)
+						return null;
+				}
+				
+				if(modelCache.isEnabled()) {
+					// fix the names now, once, rather than on every cache hit
+					// (otherwise, display names are fixed later, by the task, if needed)
+					setStatus("Setting missing display names...");
+					stage = stats.start("fix display names");
+					BioPaxMapper.fixDisplayName(model, threads, () -> cancelled);
+					namesFixed = true;
+					stage.stop(model.getObjects().size());
+					if(cancelled)
+						return null;
+					
+					if(steps.length > 0) {
+						normalizeAndCache(normalizedKey, model, steps);
+					} else {
+						setStatus("Saving the BioPAX model to the cache...");
+						stage = stats.start("save to cache");
+						modelCache.put(key, model);
+						stage.stop(model.getObjects().size());
+					}
+				}
+			}
+			
+			return model;
+		} finally {
+			input.delete();
+		}
+	}
+	
+	// normalizes the model (in place), then caches it
+	private void normalizeAndCache(String key, Model model, Step[] steps) {
+		if(cancelled)
+			return;
+		setStatus("Normalizing the BioPAX model...");
+		PipelineStats.Stage stage = stats.start("normalize");
+		ModelNormalizer.normalize(model, steps);
+		stage.stop(model.getObjects().size());
+		if(cancelled)
+			return;
+		
+		setStatus("Saving the BioPAX model to the cache...");
+		stage = stats.start("save to cache");
+		modelCache.put(key, model);
+		stage.stop(model.getObjects().size());
+	}
+	
+	// the cache key of the model normalized with the steps
+	private static String cacheKey(String key, Step[] steps) {
+		if(key == null || steps.length == 0)
+			return key;
+		int mask = 0;
+		for(Step step : steps)
+			mask |= 1 << step.ordinal();
+		return key + "-n" + Integer.toHexString(mask);
+	}
+	
+	private void setStatus(String status) {
+		this.status = status;
+		if(taskMonitor != null)
+			taskMonitor.setStatusMessage(status);
+	}
+	
+	/**
+	 * Waits for the model (loads it in the current thread if not started), 
+	 * reporting the progress and checking whether the task was cancelled.
+	 * 
+	 * @param taskMonitor task monitor
+	 * @param cancelled task's cancel flag
+	 * @return the model, or null when cancelled or there was no BioPAX data
+	 * @throws InterruptedException when interrupted while waiting
+	 */
+	Model get(TaskMonitor taskMonitor, BooleanSupplier cancelled) throws InterruptedException {
+		RunnableFuture<Model> task = null;
+		synchronized (this) {
+			if(future == null) {
+				// not started - read here
+				this.taskMonitor = taskMonitor;
+				task = new FutureTask<Model>(this);
+				future = task;
+			}
+		}
+		if(task != null)
+			task.run();
+		
+		String reported = null;
+		while(true) {
+			try {
+				return future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				String current = status;
+				if(current != reported) {
+					taskMonitor.setStatusMessage(current);
+					reported = current;
+				}
+				MappedFileInputStream in = stream;
+				if(in != null)
+					taskMonitor.setProgress(in.getProgress());
+				if(cancelled.getAsBoolean()) {
+					cancel();
+					return null;
+				}
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if(cause instanceof CancellationException)
+					return null;
+				throw (cause instanceof BioPaxReaderError) ? (BioPaxReaderError) cause
+					: new BioPaxReaderError("BioPAX reader failed - " + cause);
+			}
+		}
+	}
+	
+	/**
+	 * Stops reading the data (the parser fails soon); 
+	 * a loader that has not started yet only deletes the input.
+	 */
+	void cancel() {
+		cancelled = true;
+		synchronized (this) {
+			if(future == null)
+				input.delete();
+		}
+		MappedFileInputStream in = stream;
+		if(in != null)
+			in.abort();
+	}
+}
@@ -24,19 +24,23 @@ package org.cytoscape.biopax.internal;
  * #L%
  */
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.SwingUtilities;
 
 import org.cytoscape.biopax.internal.util.BioPaxReaderError;
+import org.cytoscape.biopax.internal.util.ModelCache;
+import org.cytoscape.biopax.internal.util.SpooledFile;
 import org.cytoscape.biopax.internal.util.VisualStyleUtil;
+import org.cytoscape.biopax.internal.util.Workers;
 import org.cytoscape.io.CyFileFilter;
 import org.cytoscape.io.read.AbstractInputStreamTaskFactory;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyTable;
+import org.cytoscape.model.subnetwork.CyRootNetwork;
 import org.cytoscape.session.events.SessionAboutToBeLoadedEvent;
 import org.cytoscape.session.events.SessionAboutToBeLoadedListener;
 import org.cytoscape.session.events.SessionLoadCancelledEvent;
@@ -57,16 +61,27 @@ public class BioPaxReader extends AbstractInputStreamTaskFactory implements Netw
 
 	private final CyServices cyServices;
 	private final VisualStyleUtil visualStyleUtil;
+	private final ModelCache modelCache;
+	private final LazyAttributeLoader lazyAttributeLoader;
+	// parses several inputs at a time (e.g., when many files are imported at once)
+	private final ExecutorService loaderPool;
+	// where the last BioPAX import put its networks
+	private final AtomicReference<CyRootNetwork> lastRootNetwork = new AtomicReference<CyRootNetwork>();
 	
 	private boolean loadingSession;
 	
 	private static final Logger LOG = LoggerFactory.getLogger(BioPaxReader.class);
 
-	public BioPaxReader(CyFileFilter filter, CyServices cyServices, VisualStyleUtil visualStyleUtil)
+	public BioPaxReader(CyFileFilter filter, CyServices cyServices, 
+			VisualStyleUtil visualStyleUtil, ModelCache modelCache, LazyAttributeLoader lazyAttributeLoader)
 	{
 		super(filter);
 		this.cyServices = cyServices;
 		this.visualStyleUtil = visualStyleUtil;
+		this.modelCache = modelCache;
+		this.lazyAttributeLoader = lazyAttributeLoader;
+		this.loaderPool = Workers.newPool("biopax-loader", (int) Math.max(1L, 
+			cyServices.getLongProperty("biopax.loaders", Math.max(1, Workers.getDefaultThreads() / 2))));
 	}
 	
 
@@ -74,8 +89,14 @@ public class BioPaxReader extends AbstractInputStreamTaskFactory implements Netw
 	public TaskIterator createTaskIterator(InputStream is, String inputName) {		
 		LOG.info("createTaskIterator: input stream name: " + inputName);
 		try {
+			// the stream can be closed by the caller as soon as we return;
+			// so we save the data to a tmp file (not to memory - inputs can be huge)
+			// (parsing starts when the task runs, i.e., not when its options dialog is cancelled)
+			BioPaxModelLoader loader = new BioPaxModelLoader(SpooledFile.spool(is), inputName, modelCache, 
+				(int) cyServices.getLongProperty("biopax.threads", Workers.getDefaultThreads()));
 			return new TaskIterator(
-				new BioPaxReaderTask(copy(is), inputName, cyServices, visualStyleUtil)
+				new BioPaxReaderTask(loader, loaderPool, inputName, cyServices, visualStyleUtil, 
+						lastRootNetwork, lazyAttributeLoader)
 			);
 		} catch (IOException e) {
 			throw new BioPaxReaderError(e.toString());
@@ -83,6 +104,15 @@ public class BioPaxReader extends AbstractInputStreamTaskFactory implements Netw
 	}
 	
 	
+	/**
+	 * Stops the loader threads (when the app is stopped);
+	 * the imports that are still running read their data in the task's thread.
+	 */
+	void dispose() {
+		loaderPool.shutdownNow();
+	}
+	
+	
 	@Override
 	public void handleEvent(SessionAboutToBeLoadedEvent e) {
 		loadingSession = true;
@@ -150,17 +180,5 @@ public class BioPaxReader extends AbstractInputStreamTaskFactory implements Netw
 		CyTable cyTable = cyNetwork.getDefaultNetworkTable();
 		return cyTable.getColumn(BioPaxMapper.BIOPAX_NETWORK) != null;
 	}
-	
-	
-	private InputStream copy(InputStream is) throws IOException {
-		ByteArrayOutputStream copy = new ByteArrayOutputStream();
-		int chunk = 0;
-		byte[] data = new byte[1024*1024];
-		while((-1 != (chunk = is.read(data)))) {
-			copy.write(data, 0, chunk);
-		}
-		is.close();
-		return new ByteArrayInputStream( copy.toByteArray() );
-	}	
 
 }
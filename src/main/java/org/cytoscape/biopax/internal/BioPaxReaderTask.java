@@ -23,36 +23,46 @@ package org.cytoscape.biopax.internal;
  * <http://www.gnu.org/licenses/lgpl-2.1.html>.
  * #L%
  */
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.biopax.paxtools.model.BioPAXElement;
 import org.biopax.paxtools.model.Model;
 import org.biopax.paxtools.model.level3.Entity;
 import org.biopax.paxtools.model.level3.EntityReference;
+import org.biopax.paxtools.model.level3.Interaction;
 import org.biopax.paxtools.pattern.miner.SIFEnum;
+import org.biopax.paxtools.pattern.miner.SIFInteraction;
 import org.biopax.paxtools.pattern.miner.SIFType;
 import org.cytoscape.application.NetworkViewRenderer;
 import org.cytoscape.biopax.internal.util.AttributeUtil;
 import org.cytoscape.biopax.internal.util.BioPaxReaderError;
+import org.cytoscape.biopax.internal.util.ImportMonitor;
+import org.cytoscape.biopax.internal.util.NetworkDiff;
+import org.cytoscape.biopax.internal.util.ModelNormalizer.Step;
+import org.cytoscape.biopax.internal.util.PipelineStats;
 import org.cytoscape.biopax.internal.util.VisualStyleUtil;
+import org.cytoscape.biopax.internal.util.Workers;
 import org.cytoscape.io.read.CyNetworkReader;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNode;
 import org.cytoscape.model.subnetwork.CyRootNetwork;
+import org.cytoscape.model.subnetwork.CySubNetwork;
 import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.view.model.CyNetworkViewFactory;
 import org.cytoscape.work.AbstractTask;
@@ -76,12 +86,18 @@ public class BioPaxReaderTask extends AbstractTask implements CyNetworkReader {
 	private static final Logger log = LoggerFactory.getLogger(BioPaxReaderTask.class);
 	
 	private static final String CREATE_NEW_COLLECTION = "A new network collection";
+	private static final String LAST_IMPORT_COLLECTION = "The collection of the last BioPAX import";
+	private static final String NO_UPDATE = "No (create a new network)";
 
 	private final HashMap<String, CyRootNetwork> nameToRootNetworkMap;
+	private final HashMap<String, CyNetwork> nameToBioPaxNetworkMap;
 	private final VisualStyleUtil visualStyleUtil;
 	private final CyServices cyServices;
+	private final AtomicReference<CyRootNetwork> lastRootNetwork;
+	private final LazyAttributeLoader lazyAttributeLoader;
 
-	private InputStream stream;
+	private final BioPaxModelLoader loader;
+	private final ExecutorService loaderPool;
 	private String inputName;
 	private final Collection<CyNetwork> networks;
 	private CyRootNetwork rootNetwork;	
@@ -154,6 +170,12 @@ public class BioPaxReaderTask extends AbstractTask implements CyNetworkReader {
 					"</ul></html>"
 			, gravity=500, xorChildren=true)
 	public ListSingleSelection<ReaderMode> readerMode;
+	
+	@Tunable(description = "Update existing network:", groups = {"Options"}, 
+			tooltip="<html>Update a network previously imported from (an older release of) the same BioPAX data:" +
+					"<br/>nodes are matched by URI, and only the changes are applied, " +
+					"so that the existing views and layouts are kept.</html>", gravity=499)
+	public ListSingleSelection<String> updateNetworkSelection;
 		
 	@Tunable(description = "Network Collection:" , groups = {"Options","Default"}, tooltip="Choose a Network Collection", 
 			dependsOn="readerMode=Default", gravity=701, xorKey="Default")
@@ -161,6 +183,13 @@ public class BioPaxReaderTask extends AbstractTask implements CyNetworkReader {
 	
 	@Tunable(description = "Network View Renderer:", groups = {"Options","Default"}, gravity=702, xorKey="Default", dependsOn="readerMode=Default")
 	public ListSingleSelection<NetworkViewRenderer> rendererList;
+	
+	@Tunable(description = "Create node attributes on demand:", groups = {"Options","Default"}, 
+			tooltip="<html>Create only the URI, BIOPAX_TYPE and name node attributes now, " +
+					"and all the others - when the nodes get selected<br/>" +
+					"(faster import and less memory for huge networks; the BioPAX model is kept in memory)</html>",
+			gravity=702.5, xorKey="Default", dependsOn="readerMode=Default")
+	public boolean lazyAttributes = false;
 
 	//select inference rules (multi-selection) for the SIF converter
 	@Tunable(description = "Binary interactions to infer:" , groups = {"Options","SIF"}, tooltip="Select inference patterns/rules to search/apply",
@@ -175,19 +204,26 @@ public class BioPaxReaderTask extends AbstractTask implements CyNetworkReader {
 	/**
 	 * Constructor
 	 * 
-	 * @param stream input biopax stream
+	 * @param loader loads the BioPAX model from the input data
+	 * @param loaderPool where the loader runs once this task is started
 	 * @param inputName a file or pathway name (can be later updated using actual data)
 	 * @param cyServices api services
 	 * @param visualStyleUtil  biopax/sif visual style utilities
+	 * @param lastRootNetwork the network collection of the last BioPAX import (shared by the tasks)
+	 * @param lazyAttributeLoader creates node attributes on demand
 	 */
-	public BioPaxReaderTask(InputStream stream, String inputName, 
-			CyServices cyServices, VisualStyleUtil visualStyleUtil) 
+	BioPaxReaderTask(BioPaxModelLoader loader, ExecutorService loaderPool, String inputName, 
+			CyServices cyServices, VisualStyleUtil visualStyleUtil, 
+			AtomicReference<CyRootNetwork> lastRootNetwork, LazyAttributeLoader lazyAttributeLoader) 
 	{
 		this.networks = new HashSet<CyNetwork>();
-		this.stream = stream;
+		this.loader = loader;
+		this.loaderPool = loaderPool;
 		this.inputName = inputName;
 		this.cyServices = cyServices;
 		this.visualStyleUtil = visualStyleUtil;
+		this.lastRootNetwork = lastRootNetwork;
+		this.lazyAttributeLoader = lazyAttributeLoader;
 		
 		// initialize the root networks Collection
 		nameToRootNetworkMap = new HashMap<String, CyRootNetwork>();
@@ -198,9 +234,28 @@ public class BioPaxReaderTask extends AbstractTask implements CyNetworkReader {
 		}		
 		List<String> rootNames = new ArrayList<String>();
 		rootNames.add(CREATE_NEW_COLLECTION);
+		if (lastRootNetwork.get() != null && nameToRootNetworkMap.containsValue(lastRootNetwork.get()))
+			rootNames.add(LAST_IMPORT_COLLECTION);
 		rootNames.addAll(nameToRootNetworkMap.keySet());
 		rootNetworkSelection = new ListSingleSelection<String>(rootNames);
 		rootNetworkSelection.setSelectedValue(CREATE_NEW_COLLECTION);
+		
+		// existing BioPAX networks that can be updated (default and SIF mappings)
+		nameToBioPaxNetworkMap = new HashMap<String, CyNetwork>();
+		List<String> updateNames = new ArrayList<String>();
+		updateNames.add(NO_UPDATE);
+		for (CyNetwork net : cyServices.networkManager.getNetworkSet()) {
+			String type = net.getRow(net).get(BioPaxMapper.BIOPAX_NETWORK, String.class);
+			if ("DEFAULT".equals(type) || "SIF".equals(type)) {
+				String name = net.getRow(net).get(CyNetwork.NAME, String.class);
+				if (nameToBioPaxNetworkMap.containsKey(name))
+					name = name + " [" + net.getSUID() + "]";
+				nameToBioPaxNetworkMap.put(name, net);
+				updateNames.add(name);
+			}
+		}
+		updateNetworkSelection = new ListSingleSelection<String>(updateNames);
+		updateNetworkSelection.setSelectedValue(NO_UPDATE);
 
 		// initialize the list of data processing modes
 		readerMode = new ListSingleSelection<>(ReaderMode.values());
@@ -238,76 +293,151 @@ public class BioPaxReaderTask extends AbstractTask implements CyNetworkReader {
 		
 		if(cancelled) return;
 		
-		// import BioPAX data into a new in-memory model
-		Model model = null;
+		final PipelineStats stats = loader.getStats();
 		try {
-			model = BioPaxMapper.read(stream);
-		} catch (Throwable e) {
-			throw new BioPaxReaderError("BioPAX reader failed to build a BioPAX model " +
-					"(check the data for syntax errors) - " + e);
+			importData(new ImportMonitor(taskMonitor, () -> cancelled), stats);
+		} catch (CancellationException e) {
+			log.info("BioPAX import cancelled: " + inputName);
+		} finally {
+			stats.log();
 		}
+	}
+	
+	@Override
+	public void cancel() {
+		super.cancel();
+		loader.cancel();
+	}
+	
+	private void importData(ImportMonitor taskMonitor, PipelineStats stats) throws Exception 
+	{
+		final CyNetwork existingNetwork = nameToBioPaxNetworkMap.get(updateNetworkSelection.getSelectedValue());
+		final ReaderMode selectedMode = readerMode.getSelectedValue();
+		final boolean sifOnly = (existingNetwork != null) 
+			? "SIF".equals(existingNetwork.getRow(existingNetwork).get(BioPaxMapper.BIOPAX_NETWORK, String.class))
+				: selectedMode == ReaderMode.SIF;
+		
+		// get the BioPAX model (read by the loader's thread; 
+		// normalized for the SIF/SBGN conversion there, if it is going to be cached)
+		ImportMonitor reading = taskMonitor.stage("Reading BioPAX data...", 0.4);
+		loader.start(loaderPool, (sifOnly) ? BioPaxMapper.SIF_NORMALIZATION 
+			: (existingNetwork == null && selectedMode == ReaderMode.SBGN) ? BioPaxMapper.SBGN_NORMALIZATION
+				: new Step[]{});
+		final Model model = loader.get(reading, reading);
+		taskMonitor.checkCancelled();
 		
 		if(model == null) {
 			throw new BioPaxReaderError("BioPAX reader did not find any BioPAX data there.");
 		}
 		
-		final String networkName = getNetworkName(model);
+		final int threads = (int) cyServices.getLongProperty("biopax.threads", Workers.getDefaultThreads());
+		
+		// set missing display names (node names, labels) - unless the loader did it already,
+		// or there will be only a SIF network and this is disabled (node names are URIs there)
+		final boolean fixNames = !loader.isNamesFixed() 
+			&& (!sifOnly || cyServices.getBooleanProperty("biopax.sif.fixDisplayName", true));
+		final ImportMonitor naming = (fixNames) 
+			? taskMonitor.stage("Setting missing display names...", 0.05) : taskMonitor.stage(null, 0.0);
+		if (fixNames) {
+			PipelineStats.Stage stage = stats.start("fix display names");
+			BioPaxMapper.fixDisplayName(model, threads, naming);
+			stage.stop(model.getObjects().size());
+		}
+		
+		final BioPaxMapper mapper = new BioPaxMapper(model, cyServices.networkFactory);
+		mapper.setThreads(threads);
+		
+		final String networkName = getNetworkName(mapper.getModelName());
 		String msg = "Model " + networkName + " contains " 
 				+ model.getObjects().size() + " BioPAX elements";
 		log.info(msg);
 		taskMonitor.setStatusMessage(msg);
 		
 		//set parent/root network (can be null - add a new networks group)
-		rootNetwork = nameToRootNetworkMap.get(rootNetworkSelection.getSelectedValue());
+		rootNetwork = (LAST_IMPORT_COLLECTION.equals(rootNetworkSelection.getSelectedValue()))
+			? lastRootNetwork.get() : nameToRootNetworkMap.get(rootNetworkSelection.getSelectedValue());
 		
-		final BioPaxMapper mapper = new BioPaxMapper(model, cyServices.networkFactory);
-			
-		ReaderMode selectedMode = readerMode.getSelectedValue();
+		// the rest of the progress bar
+		final ImportMonitor mapping = taskMonitor.stage(null, 1.0);
+		
+		if (existingNetwork != null) {
+			updateNetwork(existingNetwork, model, mapper, threads, mapping, stats);
+			return;
+		}
+		
+		PipelineStats.Stage stage;
 		switch (selectedMode) {
 		case DEFAULT:
 			anotherReader = null;
 			// Map BioPAX Data to Cytoscape Nodes/Edges (run as task)
 			taskMonitor.setStatusMessage("Mapping BioPAX model to CyNetwork...");
+			stage = stats.start("map to network");
+			mapper.setMonitor(mapping);
+			mapper.setLazyAttributes(lazyAttributes);
 			CyNetwork network = mapper.createCyNetwork(networkName, rootNetwork);
+			stage.stop(network.getNodeCount() + network.getEdgeCount());
 			if (network.getNodeCount() == 0)
 				throw new BioPaxReaderError("Pathway is empty. Please check the BioPAX source file.");
+			if (lazyAttributes)
+				lazyAttributeLoader.register(network, model);
 			// set the biopax network mapping type for other plugins
 			AttributeUtil.set(network, network, BioPaxMapper.BIOPAX_NETWORK, "DEFAULT", String.class);
 			//(the network name attr. was already set by the biopax mapper)
 			
 			//register the network
 			networks.add(network);
+			lastRootNetwork.set(cyServices.rootNetworkManager.getRootNetwork(network));
 			break;
 
 		case SIF:
 //			taskMonitor.setStatusMessage("Normalizing the BioPAX model...");
 //			BioPaxMapper.normalize(model);
 
-			//convert BioPAX to the custom binary SIF format (using a tmp file)
-			taskMonitor.setStatusMessage("Mapping BioPAX model to SIF, then to " +
-					"CyNetwork (using the first discovered SIF reader)...");
-			final File tmpSifFile = File.createTempFile("tmp_biopax2sif", ".sif");
-			tmpSifFile.deleteOnExit();
-			BioPaxMapper.convertToCustomSIF(model,
-					sifSelection.getSelectedValues().toArray(new SIFType[]{}),
-						new FileOutputStream(tmpSifFile));
-
 			// create a new CyNetwork
 			CyNetwork net = (rootNetwork == null)
 					? cyServices.networkFactory.createNetwork()
 						: rootNetwork.addSubNetwork();
+			final CustomSifParser customSifParser = new CustomSifParser(net, cyServices);
+			final SIFType[] sifTypes = sifSelection.getSelectedValues().toArray(new SIFType[]{});
 
-			// line-by-line parse the custom SIF file (- create nodes, edges and edge attributes)
-			CustomSifParser customSifParser = new CustomSifParser(net, cyServices);
-			BufferedReader reader = Files.newBufferedReader(tmpSifFile.toPath());
-			String line = null;
-			while((line = reader.readLine()) != null) {
-				customSifParser.parse(line);
+			try {
+				//convert BioPAX to binary interactions (SIF), and 
+				//create nodes, edges and edge attributes directly from these
+				taskMonitor.setStatusMessage("Mapping BioPAX model to SIF, then to CyNetwork...");
+				if (cyServices.getBooleanProperty("biopax.sif.sorted", false)) {
+					// all the interactions are collected and sorted first
+					stage = stats.start("convert to SIF");
+					List<SIFInteraction> interactions = BioPaxMapper.searchSIF(model, sifTypes, threads, 
+						mapping.stage("Searching for binary interactions...", 0.6));
+					stage.stop(model.getObjects(Interaction.class).size());
+					stage = stats.start("build SIF network");
+					ImportMonitor building = mapping.stage("Creating SIF network...", 0.2);
+					int i = 0;
+					for (SIFInteraction sif : interactions) {
+						building.step(i++, interactions.size());
+						customSifParser.parse(sif);
+					}
+					stage.stop(interactions.size());
+				} else {
+					// edges are added as soon as each SIF rule has been applied
+					stage = stats.start("convert to SIF network");
+					int n = BioPaxMapper.searchSIF(model, sifTypes, threads, 
+						mapping.stage("Searching for binary interactions...", 0.8), customSifParser::parse);
+					stage.stop(n);
+				}
+				mapping.checkCancelled();
+	
+				// create node attributes from the BioPAX properties
+				stage = stats.start("SIF node attributes");
+				createSifNodeAttr(model, net, customSifParser.getNodeMap(), mapper, 
+					mapping.stage("Updating SIF network node attributes from the BioPAX model...", 0.2));
+				stage.stop(net.getNodeCount());
+			} catch (CancellationException e) {
+				// do not leave the incomplete network in the collection
+				if (rootNetwork != null)
+					rootNetwork.removeSubNetwork((CySubNetwork) net);
+				throw e;
 			}
-			reader.close();
-
-			// create node attributes from the BioPAX properties
-			createSifNodeAttr(model, net, taskMonitor);
 
 			// final touches -
 			// set the biopax network mapping type for other plugins to use/consider
@@ -316,15 +446,19 @@ public class BioPaxReaderTask extends AbstractTask implements CyNetworkReader {
 			AttributeUtil.set(net, net, CyNetwork.NAME, networkName, String.class);
 			//register the network
 			networks.add(net);
+			lastRootNetwork.set(cyServices.rootNetworkManager.getRootNetwork(net));
 			taskMonitor.setStatusMessage("SIF network updated...");
 			break;
 
 		case SBGN:
 			//convert to SBGN
 			taskMonitor.setStatusMessage("Mapping BioPAX model to SBGN...");
+			stage = stats.start("convert to SBGN");
 			File sbgnFile = File.createTempFile("biopax", ".sbgn.xml");
 			sbgnFile.deleteOnExit(); 
 			BioPaxMapper.convertToSBGN(model, new FileOutputStream(sbgnFile));
+			stage.stop(model.getObjects(Interaction.class).size());
+			mapping.checkCancelled();
 			// try to discover a SBGN reader to pass the xml data there
 			try {
 				anotherReader = cyServices.networkViewReaderManager.getReader(sbgnFile.toURI(), networkName);
@@ -362,35 +496,112 @@ public class BioPaxReaderTask extends AbstractTask implements CyNetworkReader {
 	}
 
 	
-	private void createSifNodeAttr(Model model, CyNetwork cyNetwork,
-								   TaskMonitor taskMonitor) throws IOException
+	/*
+	 * Updates the existing BioPAX network in place (its type, 
+	 * default or SIF, takes precedence over the selected mode); 
+	 * the network is not added to this reader's networks, so no new view is created.
+	 * Everything is computed before the network is modified; once it is, 
+	 * the update is not cancelled (not to leave the network half-updated).
+	 */
+	private void updateNetwork(CyNetwork network, Model model, BioPaxMapper mapper, int threads,
+			ImportMonitor taskMonitor, PipelineStats stats)
+	{
+		final String type = network.getRow(network).get(BioPaxMapper.BIOPAX_NETWORK, String.class);
+		taskMonitor.setStatusMessage("Updating the " + type + " network from the BioPAX model...");
+		PipelineStats.Stage stage = stats.start("update network");
+		if ("SIF".equals(type)) {
+			// find the interactions and compute the node attributes first
+			final SIFType[] sifTypes = sifSelection.getSelectedValues().toArray(new SIFType[]{});
+			final List<SIFInteraction> interactions = BioPaxMapper.searchSIF(model, sifTypes, threads, 
+				taskMonitor.stage("Searching for binary interactions...", 0.6));
+			taskMonitor.checkCancelled();
+			final Set<String> uris = new LinkedHashSet<String>();
+			for (SIFInteraction sif : interactions) {
+				uris.add(sif.sourceID);
+				uris.add(sif.targetID);
+			}
+			final Map<String, BioPAXElement> elements = getSifNodeElements(model, uris);
+			if (elements.size() < uris.size()) {
+				// (fail before the network is modified)
+				throw new BioPaxReaderError("Cannot update the SIF network: " 
+					+ (uris.size() - elements.size()) + " SIF nodes are not in the BioPAX model");
+			}
+			ImportMonitor computing = taskMonitor.stage("Creating SIF network node attributes from the BioPAX model...", 0.3);
+			final Map<BioPAXElement, ElementAttributes> attributes = 
+				mapper.getNodeAttributes(elements.values(), computing, computing);
+			
+			// then update the network (no more cancel checks);
+			// all the attributes are created now (the old model is not needed anymore)
+			taskMonitor.stage("Updating the SIF network...", 0.1);
+			lazyAttributeLoader.unregister(network);
+			// SIF node names are the URIs
+			final NetworkDiff diff = new NetworkDiff(network, CyNetwork.NAME);
+			final CustomSifParser customSifParser = new CustomSifParser(network, cyServices, diff);
+			for (SIFInteraction sif : interactions)
+				customSifParser.parse(sif);
+			AttributeUtil.set(network, network, "quickfind.default_index", CyNetwork.NAME, String.class);
+			final Map<BioPAXElement, CyNode> nodes = new LinkedHashMap<BioPAXElement, CyNode>(elements.size());
+			for (Map.Entry<String, BioPAXElement> e : elements.entrySet()) {
+				CyNode node = customSifParser.getNodeMap().get(e.getKey());
+				if (node != null)
+					nodes.put(e.getValue(), node);
+				else
+					log.warn("SIF network has no node for " + e.getKey());
+			}
+			mapper.setNetworkDiff(diff);
+			mapper.setNodeAttributes(network, nodes, attributes);
+			diff.removeStale();
+		} else {
+			mapper.setMonitor(taskMonitor);
+			// (when cancelled, the old model still creates the attributes on demand)
+			mapper.updateCyNetwork(network, () -> lazyAttributeLoader.unregister(network));
+		}
+		stage.stop(network.getNodeCount() + network.getEdgeCount());
+		
+		// apply the style to the new nodes and edges of the existing views
+		for (CyNetworkView view : cyServices.networkViewManager.getNetworkViews(network)) {
+			cyServices.mappingManager.getVisualStyle(view).apply(view);
+			view.updateView();
+		}
+		taskMonitor.setStatusMessage("BioPAX network updated");
+	}
+	
+	private void createSifNodeAttr(Model model, CyNetwork cyNetwork, Map<String, CyNode> nodes,
+								   BioPaxMapper mapper, ImportMonitor taskMonitor)
 	{
-		taskMonitor.setStatusMessage("Updating SIF network node attributes from the BioPAX model...");
-
 		// Set the Quick Find Default Index
 		AttributeUtil.set(cyNetwork, cyNetwork, "quickfind.default_index", CyNetwork.NAME, String.class);
-		if (cancelled) return;
 
 		// Set node attributes from the Biopax Model
-		for (CyNode node : cyNetwork.getNodeList()) {
-			String uri = cyNetwork.getRow(node).get(CyNetwork.NAME, String.class);
+		final Map<BioPAXElement, CyNode> elements = new HashMap<BioPAXElement, CyNode>(nodes.size());
+		for (Map.Entry<String, BioPAXElement> e : getSifNodeElements(model, nodes.keySet()).entrySet())
+			elements.put(e.getValue(), nodes.get(e.getKey()));
+		
+		mapper.createNodeAttributes(cyNetwork, elements, taskMonitor, taskMonitor);
+	}
+	
+	// the BioPAX elements of the SIF nodes, by URI
+	private static Map<String, BioPAXElement> getSifNodeElements(Model model, Collection<String> uris) {
+		final Map<String, BioPAXElement> elements = new LinkedHashMap<String, BioPAXElement>(uris.size());
+		for (String uri : uris) {
 			BioPAXElement e = model.getByID(uri);
 			if(e instanceof EntityReference || e instanceof Entity) 
 			{
-				BioPaxMapper.createAttributesFromProperties(e, model, node, cyNetwork);
+				elements.put(uri, e);
 			} else if (e != null) {
 				log.warn("SIF network has an unexpected node: " + uri + " of type " + e.getModelInterface());
-				BioPaxMapper.createAttributesFromProperties(e, model, node, cyNetwork);
+				elements.put(uri, e);
 			} else { //should never happen anymore...
 				log.error("(BUG) the biopax model does not have an object with URI=" + uri);
 			}
 		}
+		return elements;
 	}
 
 
-	private String getNetworkName(Model model) {
+	private String getNetworkName(String modelName) {
 		// make a network name from pathway name(s) or the file name
-		String name = BioPaxMapper.getName(model);
+		String name = modelName;
 		
 		if(name == null || name.trim().isEmpty()) {
 			name = (inputName == null || inputName.trim().isEmpty()) 
@@ -1,65 +1,130 @@
 package org.cytoscape.biopax.internal;
 
-import org.cytoscape.biopax.internal.util.BioPaxReaderError;
+import org.biopax.paxtools.pattern.miner.SIFInteraction;
+import org.cytoscape.biopax.internal.util.NetworkDiff;
 import org.cytoscape.model.*;
 
 import java.util.*;
 
 /**
  * Created by rodche on 2015-10-19.
+ *
+ * Creates nodes (named by URI) and edges of a SIF network
+ * from the SIF interactions (with the data sources, PMIDs and pathway names
+ * as the edge attributes). There is no SIF text parsing: the SIF search
+ * results are used directly.
+ *
+ * The edge columns are created once, and repeated values (interaction types,
+ * data sources, pathway names) are interned per network.
  */
 public class CustomSifParser {
+    private static final String DATASOURCE = "datasource";
+    private static final String PUBLICATION = "publication";
+    private static final String PATHWAY = "pathway";
+
     private final CyNetwork network;
-    private Map<Object, CyNode> nMap;
+    private final CyTable edgeTable;
+    private final Map<String, CyNode> nMap;
+    // repeated values (interaction types, data sources, pathway names) are stored once
+    private final Map<String, String> strings;
+    // existing nodes and edges to reuse (when updating the network), or null
+    private final NetworkDiff diff;
 
     public CustomSifParser(final CyNetwork network, final CyServices serviceRegistrar)
     {
-        this.nMap = new HashMap<Object,CyNode>();
-        this.network = network;
+        this(network, serviceRegistrar, null);
     }
 
-    public void parse(final String row) {
-        String[] parts = row.split("\\t", -1); //allow empty tokens
+    /**
+     * Creates the parser that updates the existing SIF network in place
+     * (nodes are matched by URI, edges - by the nodes and interaction type).
+     *
+     * @param network network
+     * @param serviceRegistrar services
+     * @param diff index of the existing nodes and edges (null - new network)
+     */
+    public CustomSifParser(final CyNetwork network, final CyServices serviceRegistrar, final NetworkDiff diff)
+    {
+        this.diff = diff;
+        this.nMap = new HashMap<String,CyNode>();
+        this.strings = new HashMap<String,String>();
+        this.network = network;
 
-        if(parts==null || parts.length<6)
-            throw new BioPaxReaderError("Bad SIF entry: " + row);
+        // create the edge columns once
+        this.edgeTable = network.getDefaultEdgeTable();
+        for (String column : new String[]{DATASOURCE, PUBLICATION, PATHWAY}) {
+            if (edgeTable.getColumn(column) == null)
+                edgeTable.createListColumn(column, String.class, false);
+        }
+    }
+
+    /**
+     * Adds the binary interaction.
+     *
+     * @param sif interaction found by the SIF patterns search
+     */
+    public void parse(final SIFInteraction sif) {
+        addEdge(sif.sourceID, intern(sif.type.getTag()), sif.targetID, intern(sif.getDataSources()),
+                sif.getPublicationIDs(true), intern(sif.getPathwayNames()));
+    }
 
-        final CyNode source = createNode(parts[0]);
-        final String interactionType = parts[1];
-        final CyNode target = createNode(parts[2]);
+    private void addEdge(final String sourceUri, final String interactionType, final String targetUri,
+                         final List<String> dataSources, final List<String> publications, final List<String> pathways)
+    {
+        final CyNode source = createNode(sourceUri);
+        final CyNode target = createNode(targetUri);
 
-        final CyEdge edge = network.addEdge(source, target, true);
-        network.getRow(edge).set(CyEdge.INTERACTION, interactionType);
-        String edgeName = network.getRow(source).get(CyNetwork.NAME, String.class) +
-                " ("+interactionType+") " + network.getRow(target).get(CyNetwork.NAME, String.class);
-        network.getRow(edge).set(CyNetwork.NAME, edgeName);
+        final CyEdge edge = (diff == null) ? network.addEdge(source, target, true)
+                : diff.getEdge(source, target, interactionType);
+        final CyRow row = edgeTable.getRow(edge.getSUID());
+        set(row, CyEdge.INTERACTION, interactionType);
+        // node names are the URIs
+        set(row, CyNetwork.NAME, sourceUri + " (" + interactionType + ") " + targetUri);
 
         // add edge attributes
-        if (edge != null) {
-            addEdgeAttributes(edge, "datasource", parts[3]);
-            addEdgeAttributes(edge, "publication", parts[4]);
-            addEdgeAttributes(edge, "pathway", parts[5]);
-        }
+        set(row, DATASOURCE, dataSources);
+        set(row, PUBLICATION, publications);
+        set(row, PATHWAY, pathways);
+    }
+
+    // when updating, unchanged values are not set again (no row events)
+    private void set(final CyRow row, final String column, final Object value) {
+        if (diff == null || !value.equals(row.getRaw(column)))
+            row.set(column, value);
+    }
+
+    /**
+     * @return URIs and the nodes created so far
+     */
+    public Map<String, CyNode> getNodeMap() {
+        return Collections.unmodifiableMap(nMap);
     }
 
     private CyNode createNode(final String uri) {
         CyNode node = nMap.get(uri);
         if (node == null) {
-            // Node does not exist yet, create it
-            node = network.addNode();
-            network.getRow(node).set("name", uri);
-            nMap.put(uri, network.getNode(node.getSUID()));
+            // Node does not exist yet, create it (or find the existing one)
+            node = (diff == null) ? network.addNode() : diff.getNode(uri);
+            set(network.getRow(node), CyNetwork.NAME, uri);
+            nMap.put(uri, node);
         }
         return node;
     }
 
-    private void addEdgeAttributes(final CyEdge element, final String column, final String entry)
-    {
-        final CyTable table = network.getRow(element).getTable();
-        if (table.getColumn(column) == null)
-            table.createListColumn(column, String.class, false);
-        List<String> value = Arrays.asList(entry.split(";"));
-        network.getRow(element).set(column, value);
+    private String intern(final String value) {
+        String s = strings.get(value);
+        if (s == null) {
+            s = value;
+            strings.put(s, s);
+        }
+        return s;
+    }
+
+    private List<String> intern(final Collection<String> values) {
+        final List<String> list = new ArrayList<String>(values.size());
+        for (String value : values)
+            list.add(intern(value));
+        return list;
     }
 
 }
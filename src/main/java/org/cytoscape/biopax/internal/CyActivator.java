@@ -32,6 +32,7 @@ import org.cytoscape.io.util.StreamUtil;
 import org.cytoscape.property.CyProperty;
 import org.cytoscape.session.CyNetworkNaming;
 import org.cytoscape.application.swing.CySwingApplication;
+import org.cytoscape.application.CyApplicationConfiguration;
 import org.cytoscape.application.CyApplicationManager;
 import org.cytoscape.view.vizmap.VisualMappingFunctionFactory;
 import org.cytoscape.view.vizmap.VisualStyleFactory;
@@ -41,17 +42,25 @@ import org.cytoscape.view.model.CyNetworkViewFactory;
 import org.cytoscape.work.TaskManager;
 import org.cytoscape.work.swing.DialogTaskManager;
 import org.cytoscape.work.undo.UndoSupport;
+import org.cytoscape.biopax.internal.util.ModelCache;
 import org.cytoscape.biopax.internal.util.VisualStyleUtil;
+import org.cytoscape.biopax.internal.util.Workers;
 import org.cytoscape.model.subnetwork.CyRootNetworkManager;
 import org.cytoscape.io.read.CyNetworkReaderManager;
 import org.cytoscape.service.util.AbstractCyActivator;
 
 import org.osgi.framework.BundleContext;
 
+import java.io.File;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 
 public class CyActivator extends AbstractCyActivator {
+	
+	private BioPaxReader biopaxReader;
+	private LazyAttributeLoader lazyAttributeLoader;
+	
 	public CyActivator() {
 		super();
 	}
@@ -80,6 +89,7 @@ public class CyActivator extends AbstractCyActivator {
 		CyNetworkReaderManager cyNetworkReaderManager = getService(bc,CyNetworkReaderManager.class);
 		UndoSupport undoSupport = getService(bc,UndoSupport.class);
 		CyNetworkViewFactory networkViewFactory = getService(bc, CyNetworkViewFactory.class);
+		CyApplicationConfiguration cyApplicationConfiguration = getService(bc, CyApplicationConfiguration.class);
 		
 		
 		// keep all the service references in one place -
@@ -94,8 +104,20 @@ public class CyActivator extends AbstractCyActivator {
 				visualMappingManager, discreteMappingFunctionFactory, passthroughMappingFunctionFactory);
 		visualStyleUtil.init(); //important
 
+		// on-disk cache of the models read from previously imported data (max. size in Mb, age in days)
+		ModelCache modelCache = new ModelCache(
+				new File(cyApplicationConfiguration.getAppConfigurationDirectoryLocation(CyActivator.class), "models"),
+				cyServices.getLongProperty("biopax.cache.maxSize", 2048L) << 20,
+				TimeUnit.DAYS.toMillis(cyServices.getLongProperty("biopax.cache.maxAge", 30L)));
+
+		// creates the node attributes of 'lazy' networks when the nodes get selected
+		lazyAttributeLoader = new LazyAttributeLoader(taskManager, 
+				(int) cyServices.getLongProperty("biopax.threads", Workers.getDefaultThreads()));
+		registerAllServices(bc, lazyAttributeLoader, new Properties());
+
 		// create the biopax reader object
-		BioPaxReader biopaxReader = new BioPaxReader(bioPaxFilter, cyServices, visualStyleUtil);		
+		biopaxReader = new BioPaxReader(bioPaxFilter, cyServices, visualStyleUtil, 
+				modelCache, lazyAttributeLoader);		
 		// register/export osgi services
 		Properties props = new Properties();
 		props.setProperty("readerDescription","BioPAX reader");
@@ -106,5 +128,14 @@ public class CyActivator extends AbstractCyActivator {
 
 		//TODO move the CytoPanelComponent (results panel) and related code from CyPath2 app to here...
 	}
+
+
+	@Override
+	public void shutDown() {
+		if(biopaxReader != null)
+			biopaxReader.dispose();
+		if(lazyAttributeLoader != null)
+			lazyAttributeLoader.dispose();
+	}
 }
 
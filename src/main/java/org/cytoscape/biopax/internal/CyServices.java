@@ -66,4 +66,38 @@ final class CyServices {
 		this.rootNetworkManager = rootNetworkManager;
 	}
 	
+	/**
+	 * Gets a BioPAX app setting (e.g., "biopax.cache.maxSize")
+	 * from the Cytoscape properties (cytoscape3.props).
+	 * 
+	 * @param key property name
+	 * @param defaultValue value to use when the property is not set or not a number
+	 * @return property value
+	 */
+	long getLongProperty(String key, long defaultValue) {
+		Properties props = (cyProperty != null) ? cyProperty.getProperties() : null;
+		String value = (props != null) ? props.getProperty(key) : null;
+		if (value != null) {
+			try {
+				return Long.parseLong(value.trim());
+			} catch (NumberFormatException e) {
+			}
+		}
+		return defaultValue;
+	}
+	
+	/**
+	 * Gets a boolean property from the cytoscape3.props.
+	 * 
+	 * @param key property name
+	 * @param defaultValue value to use when the property is not set
+	 * @return property value
+	 */
+	boolean getBooleanProperty(String key, boolean defaultValue) {
+		Properties props = (cyProperty != null) ? cyProperty.getProperties() : null;
+		String value = (props != null) ? props.getProperty(key) : null;
+		return (value != null && !value.trim().isEmpty()) 
+			? Boolean.parseBoolean(value.trim()) : defaultValue;
+	}
+	
 }
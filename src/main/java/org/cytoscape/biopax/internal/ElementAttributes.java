@@ -0,0 +1,127 @@
+package org.cytoscape.biopax.internal;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Core App.
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.biopax.internal.util.AttributeWriter;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+
+/**
+ * Cytoscape attributes (String or List of String values)
+ * generated from a BioPAX element, before they are set
+ * to the node's default and hidden table rows.
+ *
+ * These can be computed in parallel (from the same BioPAX model)
+ * and then written to the network in one thread.
+ *
+ * @author rodche
+ */
+public final class ElementAttributes {
+
+	private final Map<String, Object> values = new LinkedHashMap<String, Object>();
+	private final Map<String, Object> hiddenValues = new LinkedHashMap<String, Object>();
+
+	/**
+	 * Sets the attribute (default table).
+	 *
+	 * @param name column name
+	 * @param value String or List of String; null is ignored
+	 */
+	public void set(String name, Object value) {
+		if(value != null)
+			values.put(name, value);
+	}
+
+	/**
+	 * Sets the hidden attribute.
+	 *
+	 * @param name column name
+	 * @param value String or List of String; null is ignored
+	 */
+	public void setHidden(String name, Object value) {
+		if(value != null)
+			hiddenValues.put(name, value);
+	}
+
+	/**
+	 * Adds the value to the list attribute, unless it's already there.
+	 *
+	 * @param name list column name
+	 * @param value list item
+	 */
+	@SuppressWarnings("unchecked")
+	public void add(String name, String value) {
+		List<String> list = (List<String>) values.get(name);
+		if(list == null) {
+			list = new ArrayList<String>();
+			values.put(name, list);
+		}
+		if(!list.contains(value))
+			list.add(value);
+	}
+
+	public Object get(String name) {
+		return values.get(name);
+	}
+
+	public Map<String, Object> getValues() {
+		return values;
+	}
+
+	public Map<String, Object> getHiddenValues() {
+		return hiddenValues;
+	}
+
+	/**
+	 * Sets all the attributes to the network table rows
+	 * (creates missing columns).
+	 *
+	 * @param network network
+	 * @param entry node (usually)
+	 */
+	public void applyTo(CyNetwork network, CyIdentifiable entry) {
+		AttributeWriter writer = new AttributeWriter(network, "BioPAX element attributes");
+		writeTo(writer, entry);
+		writer.flush();
+	}
+
+	/**
+	 * Adds all the attributes to the batch writer.
+	 *
+	 * @param writer network attributes writer
+	 * @param entry node (usually)
+	 */
+	public void writeTo(AttributeWriter writer, CyIdentifiable entry) {
+		for(Map.Entry<String, Object> e : values.entrySet())
+			writer.set(entry, e.getKey(), e.getValue(), String.class);
+		for(Map.Entry<String, Object> e : hiddenValues.entrySet())
+			writer.set(entry, CyNetwork.HIDDEN_ATTRS, e.getKey(), e.getValue(), String.class);
+	}
+}
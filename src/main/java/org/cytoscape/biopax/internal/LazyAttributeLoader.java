@@ -0,0 +1,203 @@
+package org.cytoscape.biopax.internal;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Core App.
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.biopax.paxtools.model.BioPAXElement;
+import org.biopax.paxtools.model.Model;
+import org.cytoscape.biopax.internal.util.Workers;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedEvent;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedListener;
+import org.cytoscape.model.events.RowSetRecord;
+import org.cytoscape.model.events.RowsSetEvent;
+import org.cytoscape.model.events.RowsSetListener;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.TaskManager;
+import org.cytoscape.work.TaskMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the full set of BioPAX node attributes on demand, 
+ * when the nodes get selected, for the networks that were imported 
+ * with only the identity attributes (see {@link BioPaxMapper#setLazyAttributes(boolean)}).
+ * 
+ * The selection event only collects the nodes; the attributes are created 
+ * by a (cancellable) task, using the worker pool shared by all such tasks.
+ * 
+ * The BioPAX model is retained until the network is destroyed
+ * (or updated by another import).
+ * 
+ * @author rodche
+ */
+final class LazyAttributeLoader implements RowsSetListener, NetworkAboutToBeDestroyedListener {
+	
+	private static final Logger log = LoggerFactory.getLogger(LazyAttributeLoader.class);
+	
+	// default node table -> lazy network
+	private final Map<CyTable, LazyNetwork> networks = new ConcurrentHashMap<CyTable, LazyNetwork>();
+	
+	private final TaskManager taskManager;
+	// computes the attributes of many selected nodes (or null - one thread)
+	private final ExecutorService pool;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param taskManager runs the tasks that create the attributes
+	 * @param threads number of threads to create the attributes of many selected nodes
+	 */
+	LazyAttributeLoader(TaskManager taskManager, int threads) {
+		this.taskManager = taskManager;
+		this.pool = (threads > 1) ? Workers.newPool("biopax-lazy-attributes", threads) : null;
+	}
+	
+	/**
+	 * Starts creating the node attributes on demand.
+	 * 
+	 * @param network network that has only the identity node attributes
+	 * @param model BioPAX model the network was created from
+	 */
+	void register(CyNetwork network, Model model) {
+		networks.put(network.getDefaultNodeTable(), new LazyNetwork(network, model));
+	}
+	
+	/**
+	 * Stops creating the node attributes and releases the model.
+	 * 
+	 * @param network network
+	 */
+	void unregister(CyNetwork network) {
+		networks.remove(network.getDefaultNodeTable());
+	}
+	
+	/**
+	 * Stops the worker threads and releases the models (when the app is stopped).
+	 */
+	void dispose() {
+		networks.clear();
+		if (pool != null)
+			pool.shutdownNow();
+	}
+	
+	@Override
+	public void handleEvent(RowsSetEvent e) {
+		if (networks.isEmpty() || !e.containsColumn(CyNetwork.SELECTED))
+			return;
+		final LazyNetwork lazy = networks.get(e.getSource());
+		if (lazy == null)
+			return;
+		
+		// selected nodes that do not have all the attributes yet
+		final List<Long> suids = new ArrayList<Long>();
+		for (RowSetRecord record : e.getColumnRecords(CyNetwork.SELECTED)) {
+			if (!Boolean.TRUE.equals(record.getValue()))
+				continue;
+			Long suid = record.getRow().get(CyIdentifiable.SUID, Long.class);
+			if (suid != null && lazy.done.add(suid))
+				suids.add(suid);
+		}
+		
+		if (!suids.isEmpty())
+			taskManager.execute(new TaskIterator(new CreateAttributesTask(lazy, suids)));
+	}
+	
+	@Override
+	public void handleEvent(NetworkAboutToBeDestroyedEvent e) {
+		unregister(e.getNetwork());
+	}
+	
+	
+	private final class CreateAttributesTask extends AbstractTask {
+		private final LazyNetwork lazy;
+		private final List<Long> suids;
+		
+		CreateAttributesTask(LazyNetwork lazy, List<Long> suids) {
+			this.lazy = lazy;
+			this.suids = suids;
+		}
+		
+		@Override
+		public void run(TaskMonitor taskMonitor) throws Exception {
+			taskMonitor.setTitle("BioPAX node attributes");
+			// unless the network has been destroyed or updated since
+			if (networks.get(lazy.network.getDefaultNodeTable()) != lazy
+					|| (pool != null && pool.isShutdown()))
+				return;
+			
+			final Map<BioPAXElement, CyNode> nodes = new HashMap<BioPAXElement, CyNode>();
+			for (Long suid : suids) {
+				CyNode node = lazy.network.getNode(suid);
+				String uri = (node != null) 
+					? lazy.network.getRow(node).get(BioPaxMapper.BIOPAX_URI, String.class) : null;
+				BioPAXElement bpe = (uri != null) ? lazy.model.getByID(uri) : null;
+				if (bpe != null)
+					nodes.put(bpe, node);
+			}
+			if (nodes.isEmpty())
+				return;
+			
+			taskMonitor.setStatusMessage("Creating attributes of " + nodes.size() + " selected nodes...");
+			final BioPaxMapper mapper = new BioPaxMapper(lazy.model, null);
+			mapper.setAttributesPool(pool);
+			try {
+				mapper.createNodeAttributes(lazy.network, nodes, taskMonitor, () -> cancelled);
+			} catch (CancellationException e) {
+				// the nodes get their attributes when they are selected again
+				// (some of them might have been written already; these are overwritten)
+				lazy.done.removeAll(suids);
+				log.debug("Cancelled creating attributes of " + nodes.size() + " selected nodes");
+			}
+		}
+	}
+	
+	
+	private static final class LazyNetwork {
+		final CyNetwork network;
+		final Model model;
+		// nodes that have (or are getting) all the attributes
+		final Set<Long> done = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+		
+		LazyNetwork(CyNetwork network, Model model) {
+			this.network = network;
+			this.model = model;
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffers attribute values by table and row and writes them
+ * to the network tables in large batches: the table lookup and column creation 
+ * happen once per column and batch, and each row is looked up once per batch 
+ * and then gets all its buffered values at once, rather than for every cell
+ * (as with {@link AttributeUtil#set(CyNetwork, CyIdentifiable, String, Object, Class)}).
+ * The values are still set cell by cell (CyRow has no multi-column setter),
+ * and Cytoscape fires the row events for the batch.
+ * 
+ * Not thread-safe (should be used by the thread that updates the network).
+ *
+ * @author rodche
+ */
+public final class AttributeWriter {
+
+	private static final Logger log = LoggerFactory.getLogger(AttributeWriter.class);
+
+	static final int BATCH_SIZE = 64*1024;
+
+	private final CyNetwork network;
+	private final String description;
+	// (entry type, table name) -> buffered rows and columns
+	private final Map<TableKey, TableBuffer> buffers = new LinkedHashMap<TableKey, TableBuffer>();
+
+	private boolean skipUnchanged;
+	private int buffered;
+	private long written;
+	private long unchanged;
+	private long nanos;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param network network to update
+	 * @param description what is written (for the log)
+	 */
+	public AttributeWriter(CyNetwork network, String description) {
+		this.network = network;
+		this.description = description;
+	}
+
+	/**
+	 * When updating an existing network, set this to not write the values 
+	 * that are already there (unchanged cells do not fire row events).
+	 *
+	 * @param skipUnchanged true - compare with the current values first
+	 */
+	public void setSkipUnchanged(boolean skipUnchanged) {
+		this.skipUnchanged = skipUnchanged;
+	}
+
+	/**
+	 * Adds the value to the default (user) table.
+	 *
+	 * @param entry node, edge or network
+	 * @param name column name
+	 * @param value value or List; null is ignored
+	 * @param type value (list element) type
+	 */
+	public void set(CyIdentifiable entry, String name, Object value, Class<?> type) {
+		set(entry, CyNetwork.DEFAULT_ATTRS, name, value, type);
+	}
+
+	/**
+	 * Adds the value to the table.
+	 *
+	 * @param entry node, edge or network
+	 * @param tableName table namespace, e.g., {@link CyNetwork#HIDDEN_ATTRS}
+	 * @param name column name
+	 * @param value value or List; null is ignored
+	 * @param type value (list element) type
+	 */
+	public void set(CyIdentifiable entry, String tableName, String name, Object value, Class<?> type) {
+		if (value == null)
+			return;
+		if (value instanceof Collection && !(value instanceof List))
+			throw new IllegalArgumentException("Attr. values collection is not a List: "
+				+ value.getClass().getSimpleName());
+
+		TableKey key = new TableKey(typeOf(entry), tableName);
+		TableBuffer table = buffers.get(key);
+		if (table == null) {
+			table = new TableBuffer();
+			buffers.put(key, table);
+		}
+		table.add(entry.getSUID(), name, value, type);
+
+		if (++buffered >= BATCH_SIZE)
+			flush();
+	}
+
+	/**
+	 * Writes the buffered values to the tables
+	 * (creates missing columns).
+	 */
+	public void flush() {
+		if (buffered == 0)
+			return;
+
+		final long start = System.nanoTime();
+		for (Map.Entry<TableKey, TableBuffer> e : buffers.entrySet()) {
+			final TableBuffer buffer = e.getValue();
+			if (buffer.rows.isEmpty())
+				continue;
+			final CyTable table = network.getTable(e.getKey().type, e.getKey().tableName);
+			
+			// create the new columns first
+			for (ColumnInfo column : buffer.columns.values()) {
+				if (!column.created) {
+					if (table.getColumn(column.name) == null) {
+						if (column.list)
+							table.createListColumn(column.name, column.type, false);
+						else
+							table.createColumn(column.name, column.type, false);
+					}
+					column.created = true;
+				}
+			}
+			
+			// then set all the values of a row at once
+			for (RowBuffer cells : buffer.rows.values()) {
+				CyRow row = table.getRow(cells.key);
+				for (int i = 0; i < cells.size; i++) {
+					if (skipUnchanged && cells.values[i].equals(row.getRaw(cells.names[i]))) {
+						unchanged++;
+						continue;
+					}
+					row.set(cells.names[i], cells.values[i]);
+					written++;
+				}
+			}
+			buffer.rows.clear();
+		}
+		buffered = 0;
+		nanos += System.nanoTime() - start;
+	}
+
+	/**
+	 * Flushes the buffers and logs the write rate.
+	 */
+	public void close() {
+		flush();
+		if (written > 0)
+			log.info(description + ": " + written + " attribute values written in " + (nanos / 1000000L)
+				+ " ms (" + getCellsPerSecond() + " cells/s)"
+				+ ((unchanged > 0) ? "; " + unchanged + " unchanged values skipped" : ""));
+	}
+
+	/**
+	 * @return number of values written to the tables so far
+	 */
+	public long getCellsWritten() {
+		return written;
+	}
+
+	/**
+	 * @return write rate, not counting the time spent outside {@link #flush()}
+	 */
+	public long getCellsPerSecond() {
+		return (nanos == 0L) ? 0L : written * 1000000000L / nanos;
+	}
+
+	private static Class<? extends CyIdentifiable> typeOf(CyIdentifiable entry) {
+		if (entry instanceof CyNode)
+			return CyNode.class;
+		else if (entry instanceof CyEdge)
+			return CyEdge.class;
+		else if (entry instanceof CyNetwork)
+			return CyNetwork.class;
+		else
+			throw new IllegalArgumentException("Unsupported table entry: " + entry);
+	}
+
+
+	private static final class TableKey {
+		final Class<? extends CyIdentifiable> type;
+		final String tableName;
+
+		TableKey(Class<? extends CyIdentifiable> type, String tableName) {
+			this.type = type;
+			this.tableName = tableName;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof TableKey && ((TableKey) o).type == type
+				&& ((TableKey) o).tableName.equals(tableName);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * type.hashCode() + tableName.hashCode();
+		}
+	}
+
+
+	private static final class TableBuffer {
+		// all the columns seen so far (created once)
+		final Map<String, ColumnInfo> columns = new LinkedHashMap<String, ColumnInfo>();
+		// the values of this batch by row key (in the order added)
+		final Map<Long, RowBuffer> rows = new LinkedHashMap<Long, RowBuffer>();
+
+		void add(long key, String name, Object value, Class<?> type) {
+			if (!columns.containsKey(name))
+				columns.put(name, new ColumnInfo(name, type, value instanceof List));
+			RowBuffer row = rows.get(key);
+			if (row == null) {
+				row = new RowBuffer(key);
+				rows.put(key, row);
+			}
+			row.add(name, value);
+		}
+	}
+
+
+	private static final class ColumnInfo {
+		final String name;
+		final Class<?> type;
+		final boolean list;
+		boolean created;
+
+		ColumnInfo(String name, Class<?> type, boolean list) {
+			this.name = name;
+			this.type = type;
+			this.list = list;
+		}
+	}
+
+
+	private static final class RowBuffer {
+		final long key;
+		String[] names = new String[8];
+		Object[] values = new Object[8];
+		int size;
+
+		RowBuffer(long key) {
+			this.key = key;
+		}
+
+		void add(String name, Object value) {
+			if (size == names.length) {
+				names = Arrays.copyOf(names, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			names[size] = name;
+			values[size++] = value;
+		}
+	}
+}
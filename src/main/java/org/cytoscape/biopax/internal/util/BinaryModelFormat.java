@@ -0,0 +1,242 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.biopax.paxtools.controller.ObjectPropertyEditor;
+import org.biopax.paxtools.controller.PropertyEditor;
+import org.biopax.paxtools.controller.SimpleEditorMap;
+import org.biopax.paxtools.model.BioPAXElement;
+import org.biopax.paxtools.model.BioPAXLevel;
+import org.biopax.paxtools.model.Model;
+
+/**
+ * A compact binary format for BioPAX L3 models
+ * (much faster to read back than RDF/XML).
+ *
+ * The elements (type, URI) are written first, followed by their
+ * property values, where object values are element indices;
+ * type and property names are written once and then referred to by number.
+ * Paxtools collections are not Serializable, and the property editors
+ * make it possible to do without.
+ *
+ * @author rodche
+ */
+public final class BinaryModelFormat {
+
+	private static final int MAGIC = 0x42505843; //"BPXC"
+	private static final int VERSION = 1;
+
+	private BinaryModelFormat() {
+	}
+
+	/**
+	 * Writes the BioPAX Level3 model.
+	 *
+	 * @param model BioPAX model
+	 * @param os output stream (not closed)
+	 * @throws IOException when the data cannot be written
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static void write(Model model, OutputStream os) throws IOException {
+		if (model.getLevel() != BioPAXLevel.L3)
+			throw new IOException("Not a BioPAX Level3 model");
+
+		DataOutputStream out = new DataOutputStream(os);
+		Map<String, Integer> dictionary = new HashMap<String, Integer>();
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeString(out, model.getXmlBase());
+
+		Set<BioPAXElement> elements = model.getObjects();
+		Map<BioPAXElement, Integer> index = new IdentityHashMap<BioPAXElement, Integer>(elements.size());
+		writeVarInt(out, elements.size());
+		for (BioPAXElement bpe : elements) {
+			index.put(bpe, index.size());
+			writeName(out, dictionary, bpe.getModelInterface().getName());
+			writeString(out, bpe.getUri());
+		}
+
+		for (BioPAXElement bpe : elements) {
+			for (PropertyEditor editor : SimpleEditorMap.L3.getEditorsOf(bpe)) {
+				Set<?> values = editor.getValueFromBean(bpe);
+				List<Object> known = new ArrayList<Object>(values.size());
+				for (Object value : values) {
+					if (value != null && !editor.isUnknown(value))
+						known.add(value);
+				}
+				if (known.isEmpty())
+					continue;
+
+				writeName(out, dictionary, editor.getProperty());
+				writeVarInt(out, known.size());
+				for (Object value : known) {
+					if (editor instanceof ObjectPropertyEditor) {
+						Integer i = index.get(value);
+						writeVarInt(out, (i == null) ? 0 : i + 1); //0 - not in the model
+					} else {
+						writeString(out, (value instanceof Enum) ? ((Enum) value).name() : value.toString());
+					}
+				}
+			}
+			writeName(out, dictionary, null); //end of element
+		}
+
+		out.flush();
+	}
+
+	/**
+	 * Reads a BioPAX Level3 model.
+	 *
+	 * @param is input stream (not closed)
+	 * @param classLoader to load the BioPAX model interfaces
+	 * @return new model
+	 * @throws IOException when the data cannot be read or are not in this format
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static Model read(InputStream is, ClassLoader classLoader) throws IOException {
+		DataInputStream in = new DataInputStream(is);
+		List<String> dictionary = new ArrayList<String>();
+
+		if (in.readInt() != MAGIC || in.readInt() != VERSION)
+			throw new IOException("Not a (supported) binary BioPAX model");
+
+		Model model = BioPAXLevel.L3.getDefaultFactory().createModel();
+		model.setXmlBase(readString(in));
+
+		int n = readVarInt(in);
+		BioPAXElement[] elements = new BioPAXElement[n];
+		try {
+			for (int i = 0; i < n; i++) {
+				Class<? extends BioPAXElement> type = (Class<? extends BioPAXElement>)
+						Class.forName(readName(in, dictionary), false, classLoader);
+				elements[i] = model.addNew(type, readString(in));
+			}
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+
+		for (BioPAXElement bpe : elements) {
+			String property;
+			while ((property = readName(in, dictionary)) != null) {
+				PropertyEditor editor = SimpleEditorMap.L3.getEditorForProperty(property, bpe.getModelInterface());
+				if (editor == null)
+					throw new IOException("No property " + property + " for " + bpe.getModelInterface());
+				int count = readVarInt(in);
+				for (int j = 0; j < count; j++) {
+					if (editor instanceof ObjectPropertyEditor) {
+						int i = readVarInt(in);
+						if (i > 0)
+							editor.setValueToBean(elements[i - 1], bpe);
+					} else {
+						editor.setValueToBean(readString(in), bpe); //parsed by the editor
+					}
+				}
+			}
+		}
+
+		return model;
+	}
+
+	// type and property names are written only once, and then - by number
+	private static void writeName(DataOutputStream out, Map<String, Integer> dictionary, String name)
+			throws IOException
+	{
+		if (name == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		Integer id = dictionary.get(name);
+		if (id != null) {
+			writeVarInt(out, id + 1);
+		} else {
+			writeVarInt(out, dictionary.size() + 1);
+			dictionary.put(name, dictionary.size());
+			writeString(out, name);
+		}
+	}
+
+	private static String readName(DataInputStream in, List<String> dictionary) throws IOException {
+		int id = readVarInt(in);
+		if (id == 0)
+			return null;
+		if (id <= dictionary.size())
+			return dictionary.get(id - 1);
+		String name = readString(in);
+		dictionary.add(name);
+		return name;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			writeVarInt(out, 0);
+		} else {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(out, bytes.length + 1);
+			out.write(bytes);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int len = readVarInt(in);
+		if (len == 0)
+			return null;
+		byte[] bytes = new byte[len - 1];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed number");
+	}
+}
@@ -0,0 +1,259 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * Detects compressed (or zip archived) BioPAX data by magic bytes
+ * and decompresses them on the fly.
+ *
+ * @author rodche
+ */
+public final class CompressionUtil {
+
+	private static final int BUFFER_SIZE = 256*1024;
+	private static final int QUEUE_SIZE = 16;
+
+	/**
+	 * Supported (or at least recognized) compression formats.
+	 */
+	public static enum Format {
+		NONE,
+		GZIP,
+		BZIP2,
+		ZSTD,
+		ZIP
+	}
+
+	private CompressionUtil() {
+	}
+
+	/**
+	 * Detects the compression format by the first bytes of the stream
+	 * (the stream must support mark/reset; its position is not changed).
+	 *
+	 * @param in input stream
+	 * @return compression format
+	 * @throws IOException when the stream cannot be read
+	 */
+	public static Format detect(InputStream in) throws IOException {
+		byte[] magic = new byte[4];
+		in.mark(magic.length);
+		int n = 0;
+		try {
+			int chunk;
+			while (n < magic.length && (chunk = in.read(magic, n, magic.length - n)) != -1)
+				n += chunk;
+		} finally {
+			in.reset();
+		}
+
+		if (n >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b)
+			return Format.GZIP;
+		if (n >= 3 && magic[0] == 'B' && magic[1] == 'Z' && magic[2] == 'h')
+			return Format.BZIP2;
+		if (n >= 4 && (magic[0] & 0xff) == 0x28 && (magic[1] & 0xff) == 0xb5
+				&& (magic[2] & 0xff) == 0x2f && (magic[3] & 0xff) == 0xfd)
+			return Format.ZSTD;
+		if (n >= 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4)
+			return Format.ZIP;
+
+		return Format.NONE;
+	}
+
+	/**
+	 * Returns the decompressed data stream (decoded in the caller's thread),
+	 * or the same data if it is not compressed (a zip archive is also returned as is,
+	 * with mark/reset supported, so that the caller could {@link #detect(InputStream)} it).
+	 *
+	 * @param in input stream
+	 * @return decompressed data stream
+	 * @throws IOException when the stream cannot be read or the format is not supported
+	 */
+	public static InputStream decompress(InputStream in) throws IOException {
+		if (!in.markSupported())
+			in = new BufferedInputStream(in, BUFFER_SIZE);
+
+		switch (detect(in)) {
+		case GZIP:
+			return new GZIPInputStream(in, BUFFER_SIZE);
+		case BZIP2:
+			return new BZip2CompressorInputStream(in, true);
+		case ZSTD:
+			throw new IOException("Zstandard compressed data are not supported; please decompress it first.");
+		default:
+			return in;
+		}
+	}
+
+	/**
+	 * Returns the decompressed data stream; if the data are compressed,
+	 * decompression runs in a separate thread, ahead of the consumer
+	 * (e.g., the RDF/XML parser), and the chunks are passed through a bounded queue.
+	 *
+	 * @param in input stream
+	 * @return decompressed data stream
+	 * @throws IOException when the stream cannot be read or the format is not supported
+	 */
+	public static InputStream decompressAsync(InputStream in) throws IOException {
+		InputStream data = decompress(in);
+		return (data == in) ? in : new AsyncInputStream(data);
+	}
+
+
+	/*
+	 * Reads the source stream in a background thread
+	 * and hands over the data chunks through a bounded queue;
+	 * the producer stops when the stream is closed, the consumer thread is gone
+	 * or the source fails (then the queue is cleared to pass the error at once).
+	 */
+	private static final class AsyncInputStream extends InputStream {
+		private static final byte[] EOF = new byte[0];
+
+		private final InputStream source;
+		private final BlockingQueue<byte[]> queue;
+		private final Thread producer;
+		private volatile boolean closed;
+		private volatile Throwable error;
+		// the thread that reads the data (set on the first read)
+		private volatile Thread consumer;
+
+		private byte[] chunk;
+		private int pos;
+
+		AsyncInputStream(InputStream source) {
+			this.source = source;
+			this.queue = new ArrayBlockingQueue<byte[]>(QUEUE_SIZE);
+			this.producer = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					produce();
+				}
+			}, "biopax-decompress");
+			producer.setDaemon(true);
+			producer.start();
+		}
+
+		private void produce() {
+			try {
+				while (!closed) {
+					byte[] buf = new byte[BUFFER_SIZE];
+					int n = 0;
+					int r = 0;
+					while (n < buf.length && (r = source.read(buf, n, buf.length - n)) != -1)
+						n += r;
+					if (n > 0 && !put((n == buf.length) ? buf : Arrays.copyOf(buf, n)))
+						break;
+					if (r == -1)
+						break;
+				}
+			} catch (Throwable t) {
+				error = t;
+				// the rest of the data do not matter; make room for the EOF
+				queue.clear();
+			} finally {
+				try {
+					source.close();
+				} catch (IOException e) {
+				}
+				try {
+					put(EOF);
+				} catch (InterruptedException e) {
+				}
+			}
+		}
+
+		// returns false when there is no one to take the data
+		private boolean put(byte[] data) throws InterruptedException {
+			while (!closed) {
+				Thread c = consumer;
+				if (c != null && !c.isAlive())
+					break;
+				if (queue.offer(data, 100, TimeUnit.MILLISECONDS))
+					return true;
+			}
+			return false;
+		}
+
+		private boolean fill() throws IOException {
+			if (chunk == EOF)
+				return false;
+			if (chunk != null && pos < chunk.length)
+				return true;
+			consumer = Thread.currentThread();
+			try {
+				chunk = queue.take();
+				pos = 0;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while decompressing the data");
+			}
+			if (chunk == EOF) {
+				if (error != null)
+					throw (error instanceof IOException) ? (IOException) error
+						: new IOException("Decompression failed", error);
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill())
+				return -1;
+			return chunk[pos++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (!fill())
+				return -1;
+			int n = Math.min(len, chunk.length - pos);
+			System.arraycopy(chunk, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+			queue.clear();
+			chunk = EOF;
+		}
+	}
+}
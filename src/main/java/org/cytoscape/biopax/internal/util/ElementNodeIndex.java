@@ -0,0 +1,186 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.biopax.paxtools.model.BioPAXElement;
+import org.cytoscape.model.CyNode;
+
+/**
+ * BioPAX element to CyNode index (open addressing, linear probing by the element URI),
+ * sized once for the expected number of elements; it stores the keys and values 
+ * in two arrays (no entry objects) and is safe to read and write from many threads 
+ * without locks (slots are claimed with compare-and-set and never removed).
+ * 
+ * Elements are matched by URI (unique in a model), so the nodes can also be 
+ * found by URI ({@link #getNode(String)}).
+ * 
+ * A concurrent {@link #put(BioPAXElement, CyNode)} of a new key may be seen 
+ * by another thread as the key without the node yet (then get returns null), 
+ * so it is best to add all the nodes before looking them up in parallel.
+ *
+ * @author rodche
+ */
+public final class ElementNodeIndex extends AbstractMap<BioPAXElement, CyNode> {
+
+	private final AtomicReferenceArray<BioPAXElement> keys;
+	private final AtomicReferenceArray<CyNode> values;
+	private final int mask;
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Creates the index for up to the expected number of elements
+	 * (the table is at most half full then).
+	 * 
+	 * @param expectedSize max number of elements (e.g., model.getObjects().size())
+	 */
+	public ElementNodeIndex(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+		if (capacity <= 0)
+			throw new BioPaxReaderError("Too many elements for the node index: " + expectedSize);
+		keys = new AtomicReferenceArray<BioPAXElement>(capacity);
+		values = new AtomicReferenceArray<CyNode>(capacity);
+		mask = capacity - 1;
+	}
+
+	// spreads the String hash bits (as HashMap does)
+	private static int hash(String uri) {
+		int h = uri.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	// slot of the URI, or of the empty slot where it would go; -1 when the table is full
+	private int find(String uri) {
+		int i = hash(uri) & mask;
+		for (int n = 0; n <= mask; n++, i = (i + 1) & mask) {
+			BioPAXElement key = keys.get(i);
+			if (key == null || uri.equals(key.getUri()))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param uri element URI
+	 * @return node or null
+	 */
+	public CyNode getNode(String uri) {
+		if (uri == null)
+			return null;
+		int i = find(uri);
+		return (i < 0) ? null : values.get(i);
+	}
+
+	@Override
+	public CyNode get(Object key) {
+		return (key instanceof BioPAXElement) ? getNode(((BioPAXElement) key).getUri()) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public CyNode put(BioPAXElement element, CyNode node) {
+		return put(element, node, false);
+	}
+
+	@Override
+	public CyNode putIfAbsent(BioPAXElement element, CyNode node) {
+		return put(element, node, true);
+	}
+
+	private CyNode put(BioPAXElement element, CyNode node, boolean onlyIfAbsent) {
+		if (element == null || node == null)
+			throw new NullPointerException();
+		final String uri = element.getUri();
+		while (true) {
+			int i = find(uri);
+			if (i < 0)
+				throw new BioPaxReaderError("The node index is full (" + size() + " elements)");
+			if (keys.get(i) == null) {
+				// claim the empty slot (or retry if another thread took it first)
+				if (!keys.compareAndSet(i, null, element))
+					continue;
+				size.incrementAndGet();
+				values.set(i, node);
+				return null;
+			}
+			return (onlyIfAbsent) ? values.get(i) : values.getAndSet(i, node);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size.get();
+	}
+
+	@Override
+	public Set<Entry<BioPAXElement, CyNode>> entrySet() {
+		return new AbstractSet<Entry<BioPAXElement, CyNode>>() {
+			@Override
+			public Iterator<Entry<BioPAXElement, CyNode>> iterator() {
+				return new Iterator<Entry<BioPAXElement, CyNode>>() {
+					private int next = advance(0);
+
+					private int advance(int i) {
+						while (i <= mask && (keys.get(i) == null || values.get(i) == null))
+							i++;
+						return i;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return next <= mask;
+					}
+
+					@Override
+					public Entry<BioPAXElement, CyNode> next() {
+						if (next > mask)
+							throw new NoSuchElementException();
+						Entry<BioPAXElement, CyNode> entry = 
+							new SimpleImmutableEntry<BioPAXElement, CyNode>(keys.get(next), values.get(next));
+						next = advance(next + 1);
+						return entry;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return ElementNodeIndex.this.size();
+			}
+		};
+	}
+}
@@ -0,0 +1,185 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+import org.cytoscape.work.TaskMonitor;
+
+/**
+ * Progress and cancellation checkpoints of a BioPAX import
+ * (parse, upgrade, fix names, create nodes, edges, attributes, search SIF...).
+ * 
+ * The import is split into stages, each taking a share of the progress bar
+ * of its parent (a stage can be split further); a stage reports
+ * its own progress (0..1), which is scaled to the overall one,
+ * and the updates are sent to the task monitor at most every 
+ * {@value #PROGRESS_MILLIS} ms. Long loops should call {@link #step(long, long)},
+ * which also throws {@link CancellationException} as soon as the task is cancelled.
+ * 
+ * Progress is reported by the task's thread (not thread-safe), 
+ * whereas the cancel flag can be checked by any thread.
+ *
+ * @author rodche
+ */
+public final class ImportMonitor implements TaskMonitor, BooleanSupplier {
+
+	private static final long PROGRESS_MILLIS = 100L;
+	// how often steps check the time (a power of two minus one)
+	private static final long STEP_MASK = 0xFF;
+
+	private final TaskMonitor taskMonitor;
+	private final BooleanSupplier cancelled;
+	// this monitor's part of the overall progress
+	private final double from;
+	private final double to;
+	private final long[] lastReport;
+
+	// the current stage's part of this monitor's progress (0..1)
+	private double stageEnd;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param taskMonitor task monitor (or null)
+	 * @param cancelled task's cancel flag (or null)
+	 */
+	public ImportMonitor(TaskMonitor taskMonitor, BooleanSupplier cancelled) {
+		this(taskMonitor, cancelled, 0.0, 1.0, new long[1]);
+	}
+
+	private ImportMonitor(TaskMonitor taskMonitor, BooleanSupplier cancelled,
+			double from, double to, long[] lastReport)
+	{
+		this.taskMonitor = taskMonitor;
+		this.cancelled = cancelled;
+		this.from = from;
+		this.to = to;
+		this.lastReport = lastReport;
+	}
+
+	/**
+	 * @return monitor that reports nothing and is never cancelled
+	 */
+	public static ImportMonitor none() {
+		return new ImportMonitor(null, null);
+	}
+
+	/**
+	 * Starts the next stage (the previous one is done).
+	 *
+	 * @param status status message (or null)
+	 * @param share part (0..1) of this monitor's progress the stage takes
+	 * @return the stage's monitor, to report its progress (0..1) or split it further
+	 * @throws CancellationException when cancelled
+	 */
+	public ImportMonitor stage(String status, double share) {
+		checkCancelled();
+		final double start = stageEnd;
+		stageEnd = Math.min(1.0, start + share);
+		if (status != null && taskMonitor != null)
+			taskMonitor.setStatusMessage(status);
+		ImportMonitor stage = new ImportMonitor(taskMonitor, cancelled,
+			scale(start), scale(stageEnd), lastReport);
+		stage.report(0.0, true);
+		return stage;
+	}
+
+	/**
+	 * Reports the progress of a loop and checks whether it's cancelled.
+	 *
+	 * @param done number of items done
+	 * @param total number of items
+	 * @throws CancellationException when cancelled
+	 */
+	public void step(long done, long total) {
+		checkCancelled();
+		if ((done & STEP_MASK) == 0 && total > 0)
+			report((double) done / total, false);
+	}
+
+	/**
+	 * @throws CancellationException when cancelled
+	 */
+	public void checkCancelled() {
+		if (isCancelled())
+			throw new CancellationException();
+	}
+
+	/**
+	 * @return true when the task is cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled != null && cancelled.getAsBoolean();
+	}
+
+	@Override
+	public boolean getAsBoolean() {
+		return isCancelled();
+	}
+
+	/**
+	 * Sets the progress of this stage (0..1); 
+	 * the updates are throttled, except for 1.0.
+	 */
+	@Override
+	public void setProgress(double progress) {
+		report(progress, progress >= 1.0);
+	}
+
+	@Override
+	public void setTitle(String title) {
+		if (taskMonitor != null)
+			taskMonitor.setTitle(title);
+	}
+
+	@Override
+	public void setStatusMessage(String statusMessage) {
+		if (taskMonitor != null)
+			taskMonitor.setStatusMessage(statusMessage);
+	}
+
+	@Override
+	public void showMessage(Level level, String message) {
+		if (taskMonitor != null)
+			taskMonitor.showMessage(level, message);
+	}
+
+	private void report(double progress, boolean force) {
+		if (taskMonitor == null)
+			return;
+		final long now = System.nanoTime() / 1000000L;
+		if (force || now - lastReport[0] >= PROGRESS_MILLIS) {
+			lastReport[0] = now;
+			taskMonitor.setProgress(scale(Math.max(0.0, Math.min(1.0, progress))));
+		}
+	}
+
+	private double scale(double progress) {
+		return from + (to - from) * progress;
+	}
+}
@@ -0,0 +1,196 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import org.cytoscape.work.TaskMonitor;
+
+/**
+ * Reads a local file through a sequence of read-only memory-mapped
+ * windows (files larger than 2Gb cannot be mapped at once),
+ * so that the data go from the OS page cache directly to the parser's buffer,
+ * and counts the bytes read (to report progress).
+ *
+ * @author rodche
+ */
+public final class MappedFileInputStream extends InputStream {
+
+	private static final long WINDOW_SIZE = 64L*1024*1024;
+
+	private final FileChannel channel;
+	private final long length;
+	private long windowStart;
+	private MappedByteBuffer buffer;
+
+	private long mark;
+
+	private TaskMonitor taskMonitor;
+	private long nextReport;
+	private volatile double progress;
+	private volatile boolean aborted;
+
+	public MappedFileInputStream(File file) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.length = channel.size();
+	}
+
+	/**
+	 * Makes the stream report the fraction of bytes read so far
+	 * (in 1% steps) as the task progress.
+	 *
+	 * @param taskMonitor task monitor or null
+	 */
+	public void setTaskMonitor(TaskMonitor taskMonitor) {
+		this.taskMonitor = taskMonitor;
+		this.nextReport = 0L;
+	}
+
+	/**
+	 * @return number of bytes read so far
+	 */
+	public long getPosition() {
+		return (buffer == null) ? 0L : windowStart + buffer.position();
+	}
+
+	/**
+	 * @return fraction of the bytes read so far (updated in 1% steps; can be called from any thread)
+	 */
+	public double getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Makes further reads fail (e.g., to stop the parser from another thread).
+	 */
+	public void abort() {
+		aborted = true;
+	}
+
+	/**
+	 * @return file size in bytes
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if(!nextWindow())
+			return -1;
+		int b = buffer.get() & 0xff;
+		progress();
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(len == 0)
+			return 0;
+		if(!nextWindow())
+			return -1;
+		int n = Math.min(len, buffer.remaining());
+		buffer.get(b, off, n);
+		progress();
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = 0L;
+		while(skipped < n && nextWindow()) {
+			int k = (int) Math.min(n - skipped, buffer.remaining());
+			buffer.position(buffer.position() + k);
+			skipped += k;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		mark = getPosition();
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		if(buffer != null && mark >= windowStart && mark <= windowStart + buffer.limit()) {
+			buffer.position((int) (mark - windowStart));
+		} else {
+			if(!channel.isOpen())
+				throw new IOException("Stream closed");
+			buffer = channel.map(MapMode.READ_ONLY, mark, Math.min(WINDOW_SIZE, length - mark));
+			windowStart = mark;
+		}
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(length - getPosition(), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer = null;
+		channel.close();
+	}
+
+	// maps the next region of the file when the current one is consumed
+	private boolean nextWindow() throws IOException {
+		if(aborted)
+			throw new InterruptedIOException("Reading aborted");
+		if(buffer != null && buffer.hasRemaining())
+			return true;
+		if(!channel.isOpen())
+			throw new IOException("Stream closed");
+		long next = (buffer == null) ? 0L : windowStart + buffer.capacity();
+		if(next >= length)
+			return false;
+		buffer = channel.map(MapMode.READ_ONLY, next, Math.min(WINDOW_SIZE, length - next));
+		windowStart = next;
+		return true;
+	}
+
+	private void progress() {
+		long pos = getPosition();
+		if(pos >= nextReport) {
+			progress = (double) pos / length;
+			if(taskMonitor != null)
+				taskMonitor.setProgress(progress);
+			nextReport = pos + Math.max(length / 100, 1L);
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.biopax.paxtools.model.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On-disk cache of BioPAX models that were read (parsed, upgraded, fixed)
+ * from the data with the same content hash, so that repeated imports of
+ * the same file skip RDF/XML parsing.
+ *
+ * Models are stored in the {@link BinaryModelFormat}, deflated;
+ * least recently used entries are evicted when the cache grows
+ * over the max. size, and entries older than the max. age are removed
+ * (as well as the temp. files left by failed imports).
+ *
+ * @author rodche
+ */
+public final class ModelCache {
+
+	private static final Logger log = LoggerFactory.getLogger(ModelCache.class);
+
+	private static final String SUFFIX = ".model";
+	private static final String TMP_SUFFIX = ".tmp";
+	// temp. files older than this are left by failed or killed imports
+	private static final long TMP_MAX_AGE = 60L*60*1000;
+	private static final int BUFFER_SIZE = 1024*1024;
+
+	private final File dir;
+	private final long maxSize;
+	private final long maxAge;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dir cache directory
+	 * @param maxSize max. total size of the cache files, in bytes (0 - disables the cache)
+	 * @param maxAge max. age of a cache entry, in milliseconds
+	 */
+	public ModelCache(File dir, long maxSize, long maxAge) {
+		this.dir = dir;
+		this.maxSize = maxSize;
+		this.maxAge = maxAge;
+	}
+
+	public boolean isEnabled() {
+		return dir != null && maxSize > 0;
+	}
+
+	/**
+	 * Gets the cached model.
+	 *
+	 * @param key content hash of the original data
+	 * @return model or null (not cached or failed to load)
+	 */
+	public Model get(String key) {
+		if (!isEnabled() || key == null)
+			return null;
+
+		final File file = new File(dir, key + SUFFIX);
+		if (!file.isFile())
+			return null;
+
+		Model model = null;
+		// (the stream does not release the native zlib memory of a given inflater)
+		final Inflater inflater = new Inflater();
+		try (InputStream in = new InflaterInputStream(
+				new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE), inflater, BUFFER_SIZE)) {
+			model = BinaryModelFormat.read(in, ModelCache.class.getClassLoader());
+			file.setLastModified(System.currentTimeMillis()); //recently used
+			log.info("Loaded BioPAX model from the cache: " + file);
+		} catch (Throwable e) {
+			log.warn("Failed to load cached BioPAX model " + file + "; " + e);
+			file.delete();
+		} finally {
+			inflater.end();
+		}
+
+		return model;
+	}
+
+	/**
+	 * Saves the model to the cache and evicts old entries.
+	 *
+	 * @param key content hash of the original data
+	 * @param model BioPAX model
+	 */
+	public void put(String key, Model model) {
+		if (!isEnabled() || key == null || model == null)
+			return;
+
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			log.warn("Cannot create the BioPAX model cache directory " + dir);
+			return;
+		}
+
+		// a unique temp. file (the same data can be imported concurrently),
+		// which then atomically replaces the entry
+		final File file = new File(dir, key + SUFFIX);
+		File tmp = null;
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			tmp = File.createTempFile(key + SUFFIX + "-", TMP_SUFFIX, dir);
+			try (OutputStream out = new DeflaterOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE), deflater, BUFFER_SIZE)) {
+				BinaryModelFormat.write(model, out);
+			}
+			Files.move(tmp.toPath(), file.toPath(), 
+				StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			log.info("Cached BioPAX model: " + file + " (" + (file.length() >> 20) + " Mb)");
+		} catch (Throwable e) {
+			log.warn("Failed to cache BioPAX model " + key + "; " + e);
+			if (tmp != null)
+				tmp.delete();
+		} finally {
+			deflater.end();
+		}
+
+		evict();
+	}
+
+	/**
+	 * Removes the expired entries, and then the least recently used ones
+	 * until the cache fits in the max. size; the temp. files being written 
+	 * count towards the size, and the stale ones are deleted.
+	 */
+	public void evict() {
+		File[] files = (dir == null) ? null : dir.listFiles();
+		if (files == null)
+			return;
+
+		final long now = System.currentTimeMillis();
+		long total = 0L;
+		for (File f : files) {
+			if (!f.getName().endsWith(TMP_SUFFIX))
+				continue;
+			if (now - f.lastModified() > TMP_MAX_AGE) {
+				log.info("Deleted stale BioPAX model cache temp. file " + f);
+				f.delete();
+			} else {
+				total += f.length();
+			}
+		}
+
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return Long.compare(f2.lastModified(), f1.lastModified());
+			}
+		});
+
+		for (File f : files) {
+			if (!f.getName().endsWith(SUFFIX))
+				continue;
+			total += f.length();
+			if (total > maxSize || now - f.lastModified() > maxAge) {
+				log.info("Evicted cached BioPAX model " + f);
+				f.delete();
+			}
+		}
+	}
+}
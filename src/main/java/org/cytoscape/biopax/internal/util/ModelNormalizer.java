@@ -0,0 +1,143 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.biopax.paxtools.controller.ModelUtils;
+import org.biopax.paxtools.model.Model;
+import org.biopax.paxtools.model.level3.SimplePhysicalEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Normalizes a BioPAX model before converting it to SIF or SBGN,
+ * and remembers which of the steps have already been applied to that model
+ * (models are weakly referenced), so that they are not repeated.
+ * 
+ * The steps modify the whole model in place, in the calling thread
+ * (they cannot run on a copy or in parallel), and they are idempotent.
+ *
+ * @author rodche
+ */
+public final class ModelNormalizer {
+
+	private static final Logger log = LoggerFactory.getLogger(ModelNormalizer.class);
+
+	/**
+	 * Normalization steps.
+	 */
+	public static enum Step {
+		/** merge interactions with exactly same properties */
+		MERGE_INTERACTIONS,
+		/** make generic physical entities and references consistent (for better SIF conversion results) */
+		NORMALIZE_GENERICS,
+		/** add entity references to simple physical entities that do not have any */
+		ADD_MISSING_ENTITY_REFERENCES
+	}
+
+	private static final Map<Model, Set<Step>> applied = new WeakHashMap<Model, Set<Step>>();
+
+	private ModelNormalizer() {
+	}
+
+	/**
+	 * Applies the steps (in the order of the {@link Step} enum) 
+	 * that have not been applied to the model yet.
+	 *
+	 * @param model BioPAX model
+	 * @param steps normalization steps
+	 */
+	public static void normalize(Model model, Step... steps) {
+		// one thread at a time per model (steps modify the model)
+		synchronized (model) {
+			EnumSet<Step> todo = EnumSet.noneOf(Step.class);
+			for (Step step : steps)
+				todo.add(step);
+			todo.removeAll(getApplied(model));
+
+			for (Step step : todo) {
+				long start = System.currentTimeMillis();
+				switch (step) {
+				case MERGE_INTERACTIONS:
+					ModelUtils.mergeEquivalentInteractions(model);
+					break;
+				case NORMALIZE_GENERICS:
+					ModelUtils.normalizeGenerics(model);
+					break;
+				case ADD_MISSING_ENTITY_REFERENCES:
+					List<SimplePhysicalEntity> spes = new ArrayList<SimplePhysicalEntity>();
+					for (SimplePhysicalEntity spe : model.getObjects(SimplePhysicalEntity.class)) {
+						if (spe.getEntityReference() == null)
+							spes.add(spe);
+					}
+					for (SimplePhysicalEntity spe : spes)
+						ModelUtils.addMissingEntityReference(model, spe);
+					break;
+				default:
+					break;
+				}
+				setApplied(model, step);
+				log.debug("Normalization step " + step + " done in " 
+					+ (System.currentTimeMillis() - start) + " ms");
+			}
+		}
+	}
+
+	/**
+	 * @param model BioPAX model
+	 * @return the normalization steps applied to the model
+	 */
+	public static Set<Step> getApplied(Model model) {
+		synchronized (applied) {
+			Set<Step> steps = applied.get(model);
+			return (steps == null) ? EnumSet.noneOf(Step.class) : EnumSet.copyOf(steps);
+		}
+	}
+
+	/**
+	 * Records that the steps have been applied to the model 
+	 * (e.g., the model was normalized before it was cached).
+	 *
+	 * @param model BioPAX model
+	 * @param steps normalization steps
+	 */
+	public static void setApplied(Model model, Step... steps) {
+		synchronized (applied) {
+			Set<Step> done = applied.get(model);
+			if (done == null) {
+				done = EnumSet.noneOf(Step.class);
+				applied.put(model, done);
+			}
+			for (Step step : steps)
+				done.add(step);
+		}
+	}
+}
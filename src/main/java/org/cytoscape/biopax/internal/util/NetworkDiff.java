@@ -0,0 +1,188 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Updates an existing network in place, when the same (or a new release of) 
+ * BioPAX data are mapped to it again: nodes are matched by URI, edges - by 
+ * their source and target nodes and the interaction type; the matching ones are 
+ * reused (so are their views, positions), new ones are added, and those 
+ * that were not requested during the update are removed by {@link #removeStale()}.
+ * 
+ * Nodes without a URI, and edges that connect such nodes, are not touched 
+ * (e.g., added by the user or another app).
+ * 
+ * Not thread-safe (should be used by the thread that updates the network).
+ *
+ * @author rodche
+ */
+public final class NetworkDiff {
+
+	private static final Logger log = LoggerFactory.getLogger(NetworkDiff.class);
+
+	private final CyNetwork network;
+	// URI -> existing node not yet reused
+	private final Map<String, CyNode> staleNodes;
+	// edge key -> existing edges not yet reused
+	private final Map<String, List<CyEdge>> staleEdges;
+	// all the URI nodes, reused or new
+	private final Map<String, CyNode> nodes;
+	private final Set<CyNode> reusedNodes;
+
+	private int reusedEdges;
+	private int newNodes;
+	private int newEdges;
+
+	/**
+	 * Indexes the network's nodes and edges.
+	 *
+	 * @param network existing network
+	 * @param uriColumn name of the node column that contains URIs
+	 */
+	public NetworkDiff(CyNetwork network, String uriColumn) {
+		this.network = network;
+		this.nodes = new HashMap<String, CyNode>();
+		this.reusedNodes = new HashSet<CyNode>();
+		this.staleNodes = new HashMap<String, CyNode>();
+		for (CyNode node : network.getNodeList()) {
+			String uri = network.getRow(node).get(uriColumn, String.class);
+			if (uri != null)
+				staleNodes.put(uri, node);
+		}
+
+		this.staleEdges = new HashMap<String, List<CyEdge>>();
+		final Map<CyNode, String> uris = new HashMap<CyNode, String>(staleNodes.size());
+		for (Map.Entry<String, CyNode> e : staleNodes.entrySet())
+			uris.put(e.getValue(), e.getKey());
+		for (CyEdge edge : network.getEdgeList()) {
+			if (!uris.containsKey(edge.getSource()) || !uris.containsKey(edge.getTarget()))
+				continue;
+			String type = network.getRow(edge).get(CyEdge.INTERACTION, String.class);
+			String key = key(edge.getSource(), edge.getTarget(), type);
+			List<CyEdge> edges = staleEdges.get(key);
+			if (edges == null) {
+				edges = new ArrayList<CyEdge>(1);
+				staleEdges.put(key, edges);
+			}
+			edges.add(edge);
+		}
+	}
+
+	/**
+	 * @return network
+	 */
+	public CyNetwork getNetwork() {
+		return network;
+	}
+
+	/**
+	 * Gets the existing node that has the URI or adds a new one
+	 * (the caller then sets its attributes, including the URI).
+	 *
+	 * @param uri BioPAX element URI
+	 * @return node
+	 */
+	public CyNode getNode(String uri) {
+		CyNode node = nodes.get(uri);
+		if (node == null) {
+			node = staleNodes.remove(uri);
+			if (node != null) {
+				reusedNodes.add(node);
+			} else {
+				node = network.addNode();
+				newNodes++;
+			}
+			nodes.put(uri, node);
+		}
+		return node;
+	}
+
+	/**
+	 * Gets an existing (not yet reused) directed edge
+	 * of the type from the source to the target node, or adds a new one
+	 * (the caller then sets its attributes, including the interaction type).
+	 *
+	 * @param source source node
+	 * @param target target node
+	 * @param type interaction type
+	 * @return edge
+	 */
+	public CyEdge getEdge(CyNode source, CyNode target, String type) {
+		List<CyEdge> edges = staleEdges.get(key(source, target, type));
+		if (edges != null && !edges.isEmpty()) {
+			reusedEdges++;
+			return edges.remove(edges.size() - 1);
+		}
+		newEdges++;
+		return network.addEdge(source, target, true);
+	}
+
+	/**
+	 * @param node node
+	 * @return true when the node was there before the update
+	 */
+	public boolean isReused(CyNode node) {
+		return reusedNodes.contains(node);
+	}
+
+	/**
+	 * Removes the nodes and edges that were not reused
+	 * (along with their adjacent edges).
+	 */
+	public void removeStale() {
+		final Collection<CyEdge> edges = new ArrayList<CyEdge>();
+		for (List<CyEdge> list : staleEdges.values())
+			edges.addAll(list);
+		if (!edges.isEmpty())
+			network.removeEdges(edges);
+		if (!staleNodes.isEmpty())
+			network.removeNodes(staleNodes.values());
+
+		log.info("Network updated: " + reusedNodes.size() + " nodes and " + reusedEdges + " edges kept, "
+			+ newNodes + " nodes and " + newEdges + " edges added, "
+			+ staleNodes.size() + " nodes and " + edges.size() + " edges removed");
+		staleNodes.clear();
+		staleEdges.clear();
+	}
+
+	private static String key(CyNode source, CyNode target, String type) {
+		return source.getSUID() + "\t" + target.getSUID() + "\t" + type;
+	}
+}
@@ -0,0 +1,170 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Timing and memory statistics of the BioPAX import stages
+ * (read, map to a network, convert to SIF/SBGN, etc.), which are
+ * logged after each import so that performance can be compared 
+ * between versions and data sets.
+ * 
+ * For every stage, it records the wall time, the number of items 
+ * processed (elements, nodes, interactions) per second and the heap 
+ * in use when the stage ends (JVM-wide, including the garbage not collected yet
+ * and other imports running at the same time, so it is only a rough estimate;
+ * the JMX peak usage counters are not reset, as they are global and shared).
+ *
+ * @author rodche
+ */
+public final class PipelineStats {
+
+	private static final Logger log = LoggerFactory.getLogger(PipelineStats.class);
+
+	private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+	private final String name;
+	private final List<Stage> stages = new ArrayList<Stage>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name what is being imported (for the log)
+	 */
+	public PipelineStats(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Starts a new stage (in the current thread).
+	 *
+	 * @param stage name
+	 * @return stage to stop when done
+	 */
+	public synchronized Stage start(String stage) {
+		Stage s = new Stage(stage);
+		stages.add(s);
+		return s;
+	}
+
+	public synchronized List<Stage> getStages() {
+		return new ArrayList<Stage>(stages);
+	}
+
+	/**
+	 * Logs the statistics of the finished stages.
+	 */
+	public void log() {
+		if (log.isInfoEnabled())
+			log.info(toString());
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder("BioPAX import statistics (").append(name).append("):");
+		for (Stage s : stages) {
+			if (s.isStopped())
+				sb.append("\n  ").append(s);
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * An import stage measurement.
+	 */
+	public static final class Stage {
+		private final String name;
+		private final long startNanos;
+		private long nanos = -1L;
+		private long items;
+		private long usedHeap = -1L;
+
+		private Stage(String name) {
+			this.name = name;
+			this.startNanos = System.nanoTime();
+		}
+
+		/**
+		 * Stops the stage.
+		 *
+		 * @param items number of items processed (0 - unknown)
+		 */
+		public void stop(long items) {
+			if (isStopped())
+				return;
+			this.nanos = System.nanoTime() - startNanos;
+			this.items = items;
+			this.usedHeap = memory.getHeapMemoryUsage().getUsed();
+		}
+
+		public boolean isStopped() {
+			return nanos >= 0;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getMillis() {
+			return nanos / 1000000L;
+		}
+
+		public long getItems() {
+			return items;
+		}
+
+		/**
+		 * @return items per second, or 0 if unknown
+		 */
+		public long getThroughput() {
+			return (nanos <= 0 || items <= 0) ? 0L : items * 1000000000L / nanos;
+		}
+
+		/**
+		 * @return JVM heap in use when the stage stopped, in bytes, or -1 if not stopped
+		 */
+		public long getUsedHeapBytes() {
+			return usedHeap;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder(name).append(": ").append(getMillis()).append(" ms");
+			if (items > 0)
+				sb.append(", ").append(items).append(" items (").append(getThroughput()).append("/s)");
+			if (usedHeap >= 0)
+				sb.append(", heap used ").append(usedHeap >> 20).append(" Mb");
+			return sb.toString();
+		}
+	}
+}
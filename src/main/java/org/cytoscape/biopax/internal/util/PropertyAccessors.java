@@ -0,0 +1,120 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.biopax.paxtools.model.BioPAXElement;
+
+/**
+ * Cached getters of BioPAX properties, looked up by the property name
+ * once per model interface (not on every call, via reflection).
+ *
+ * @author rodche
+ */
+public final class PropertyAccessors {
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, BioPAXElement.class);
+
+	// marks the properties that the type does not have
+	private static final MethodHandle NO_GETTER = MethodHandles.constant(Object.class, null);
+
+	private static final ClassValue<ConcurrentMap<String, MethodHandle>> GETTERS =
+		new ClassValue<ConcurrentMap<String, MethodHandle>>() {
+			@Override
+			protected ConcurrentMap<String, MethodHandle> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<String, MethodHandle>();
+			}
+		};
+
+	private PropertyAccessors() {
+	}
+
+	/**
+	 * Gets the property getter (adapted to the (BioPAXElement)Object type).
+	 *
+	 * @param type BioPAX model interface
+	 * @param property BioPAX property name, e.g., "modificationType"
+	 * @return method handle or null when there is no such property
+	 */
+	public static MethodHandle getter(Class<? extends BioPAXElement> type, String property) {
+		ConcurrentMap<String, MethodHandle> getters = GETTERS.get(type);
+		MethodHandle getter = getters.get(property);
+		if (getter == null) {
+			getter = lookup(type, property);
+			getters.putIfAbsent(property, getter);
+		}
+		return (getter == NO_GETTER) ? null : getter;
+	}
+
+	/**
+	 * Checks whether the type has the property (the getter is cached).
+	 *
+	 * @param type BioPAX model interface
+	 * @param property BioPAX property name
+	 * @return true when there is such property
+	 */
+	public static boolean has(Class<? extends BioPAXElement> type, String property) {
+		return getter(type, property) != null;
+	}
+
+	/**
+	 * Gets the property value; when the element does not have the property,
+	 * returns null as well (no exception is thrown, as the callers often 
+	 * try several property names or types, see {@link #has(Class, String)}).
+	 *
+	 * @param bpe BioPAX element
+	 * @param property BioPAX property name
+	 * @return value (a single value or collection) or null
+	 */
+	public static Object get(BioPAXElement bpe, String property) {
+		MethodHandle getter = getter(bpe.getModelInterface(), property);
+		if (getter == null)
+			return null;
+		try {
+			return (Object) getter.invokeExact(bpe);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	private static MethodHandle lookup(Class<?> type, String property) {
+		String name = "get" + property.substring(0, 1).toUpperCase()
+				+ property.substring(1).replace('-', '_');
+		try {
+			Method method = type.getMethod(name);
+			return MethodHandles.publicLookup().unreflect(method).asType(GETTER_TYPE);
+		} catch (NoSuchMethodException | IllegalAccessException | IllegalArgumentException e) {
+			return NO_GETTER;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A temporary file copy of the BioPAX input stream.
+ *
+ * Unlike an in-memory copy, it does not take any heap space,
+ * and it can be opened again and again (e.g., to sniff the header
+ * and then read the data), until deleted.
+ *
+ * @author rodche
+ */
+public final class SpooledFile {
+
+	private static final int BUFFER_SIZE = 1024*1024;
+
+	private final File file;
+	private final String contentHash;
+
+	private SpooledFile(File file, String contentHash) {
+		this.file = file;
+		this.contentHash = contentHash;
+	}
+
+	/**
+	 * Copies the stream to a new temporary file
+	 * (computing the SHA-256 content hash on the way)
+	 * and closes the stream.
+	 *
+	 * @param is input stream
+	 * @return spooled data
+	 * @throws IOException when the data cannot be read or written
+	 */
+	public static SpooledFile spool(InputStream is) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		File file = File.createTempFile("biopax", ".tmp");
+		file.deleteOnExit();
+		try (OutputStream out = new FileOutputStream(file);
+			 InputStream in = new DigestInputStream(is, digest)) {
+			int chunk = 0;
+			byte[] data = new byte[BUFFER_SIZE];
+			while((-1 != (chunk = in.read(data)))) {
+				out.write(data, 0, chunk);
+			}
+		} catch (IOException e) {
+			file.delete();
+			throw e;
+		} finally {
+			is.close();
+		}
+		StringBuilder hash = new StringBuilder();
+		for(byte b : digest.digest())
+			hash.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+
+		return new SpooledFile(file, hash.toString());
+	}
+
+	/**
+	 * Opens a new memory-mapped input stream to read the data from the beginning.
+	 *
+	 * @return new input stream
+	 * @throws IOException when the file was deleted or cannot be read
+	 */
+	public MappedFileInputStream open() throws IOException {
+		return new MappedFileInputStream(file);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return SHA-256 hash (hex) of the data
+	 */
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	public long length() {
+		return file.length();
+	}
+
+	/**
+	 * Deletes the temporary file.
+	 */
+	public void delete() {
+		if(!file.delete() && file.exists())
+			file.deleteOnExit();
+	}
+
+	@Override
+	public String toString() {
+		return file.getPath();
+	}
+}
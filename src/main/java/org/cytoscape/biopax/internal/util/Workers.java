@@ -0,0 +1,264 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Worker thread pools and a parallel map with a single writer,
+ * which is how we compute things from a (read-only) BioPAX model
+ * on many cores but then update a CyNetwork in one thread.
+ *
+ * @author rodche
+ */
+public final class Workers {
+
+	private static final long POLL_MILLIS = 50L;
+
+	private Workers() {
+	}
+
+	/**
+	 * @return number of the available processors
+	 */
+	public static int getDefaultThreads() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Creates a fixed size pool of daemon threads.
+	 *
+	 * @param name thread name prefix
+	 * @param threads number of threads
+	 * @return new executor
+	 */
+	public static ExecutorService newPool(final String name, int threads) {
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Runs the action on every item using the pool (chunk by chunk),
+	 * or in the calling thread if the pool is null; 
+	 * the action must not modify anything that other items' actions access.
+	 *
+	 * @param pool executor (or null)
+	 * @param items input
+	 * @param chunkSize number of items per task
+	 * @param action what to do with an item (must be thread-safe)
+	 * @param cancelled cancel flag (or null)
+	 * @param <T> item type
+	 * @throws InterruptedException when interrupted while waiting for the tasks
+	 * @throws CancellationException when cancelled
+	 */
+	public static <T> void forEach(ExecutorService pool, List<T> items, int chunkSize,
+			final Consumer<? super T> action, final BooleanSupplier cancelled) throws InterruptedException
+	{
+		if (pool == null) {
+			for (T item : items) {
+				if (cancelled != null && cancelled.getAsBoolean())
+					throw new CancellationException();
+				action.accept(item);
+			}
+		} else {
+			map(pool, items, chunkSize, item -> {
+				action.accept(item);
+				return Boolean.TRUE;
+			}, (item, done) -> {}, cancelled);
+		}
+	}
+
+	/**
+	 * Applies the function to every item using the pool,
+	 * chunk by chunk (each worker collects its chunk's results in its own buffer),
+	 * and passes the results to the writer in the calling thread
+	 * as soon as a chunk is done (so the order of the chunks is not preserved).
+	 *
+	 * @param pool executor
+	 * @param items input
+	 * @param chunkSize number of items per task
+	 * @param function computes a result from an item (must be thread-safe)
+	 * @param writer consumes the (item, result) pairs in the calling thread
+	 * @param <T> item type
+	 * @param <R> result type
+	 * @throws InterruptedException when interrupted while waiting for the results
+	 */
+	public static <T, R> void map(ExecutorService pool, List<T> items, int chunkSize,
+			final Function<? super T, ? extends R> function, BiConsumer<? super T, ? super R> writer)
+			throws InterruptedException
+	{
+		map(pool, items, chunkSize, function, writer, null);
+	}
+
+	/**
+	 * Same as {@link #map(ExecutorService, List, int, Function, BiConsumer)}, but
+	 * also checks (every {@value #POLL_MILLIS} ms) whether the job is cancelled;
+	 * if so, the remaining chunks are not started (running ones get interrupted).
+	 *
+	 * @param pool executor
+	 * @param items input
+	 * @param chunkSize number of items per task
+	 * @param function computes a result from an item (must be thread-safe)
+	 * @param writer consumes the (item, result) pairs in the calling thread
+	 * @param cancelled cancel flag (or null)
+	 * @param <T> item type
+	 * @param <R> result type
+	 * @throws InterruptedException when interrupted while waiting for the results
+	 * @throws CancellationException when cancelled
+	 */
+	public static <T, R> void map(ExecutorService pool, List<T> items, int chunkSize,
+			final Function<? super T, ? extends R> function, BiConsumer<? super T, ? super R> writer,
+			final BooleanSupplier cancelled) throws InterruptedException
+	{
+		CompletionService<List<R>> completion = new ExecutorCompletionService<List<R>>(pool);
+		Map<Future<List<R>>, List<T>> futures = new IdentityHashMap<Future<List<R>>, List<T>>();
+		for (int from = 0; from < items.size(); from += chunkSize) {
+			final List<T> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+			futures.put(completion.submit(chunkTask(chunk, function, cancelled)), chunk);
+		}
+
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				Future<List<R>> done = null;
+				while (done == null) {
+					if (cancelled != null && cancelled.getAsBoolean())
+						throw new CancellationException();
+					done = (cancelled == null) ? completion.take()
+						: completion.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				}
+				List<T> chunk = futures.get(done);
+				List<R> results = done.get();
+				for (int j = 0; j < results.size(); j++)
+					writer.accept(chunk.get(j), results.get(j));
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw (cause instanceof RuntimeException) ? (RuntimeException) cause
+				: new RuntimeException(cause);
+		} finally {
+			for (Future<List<R>> f : futures.keySet())
+				f.cancel(true);
+		}
+	}
+
+	/**
+	 * Same as {@link #map(ExecutorService, List, int, Function, BiConsumer, BooleanSupplier)}, 
+	 * but passes the results to the writer in the order of the items
+	 * (a chunk's results are written when all the previous chunks' are).
+	 *
+	 * @param pool executor
+	 * @param items input
+	 * @param chunkSize number of items per task
+	 * @param function computes a result from an item (must be thread-safe)
+	 * @param writer consumes the (item, result) pairs in the calling thread, in order
+	 * @param cancelled cancel flag (or null)
+	 * @param <T> item type
+	 * @param <R> result type
+	 * @throws InterruptedException when interrupted while waiting for the results
+	 * @throws CancellationException when cancelled
+	 */
+	public static <T, R> void mapInOrder(ExecutorService pool, List<T> items, int chunkSize,
+			final Function<? super T, ? extends R> function, BiConsumer<? super T, ? super R> writer,
+			final BooleanSupplier cancelled) throws InterruptedException
+	{
+		List<Future<List<R>>> futures = new ArrayList<Future<List<R>>>();
+		List<List<T>> chunks = new ArrayList<List<T>>();
+		for (int from = 0; from < items.size(); from += chunkSize) {
+			final List<T> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+			futures.add(pool.submit(chunkTask(chunk, function, cancelled)));
+			chunks.add(chunk);
+		}
+
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				List<R> results = null;
+				while (results == null) {
+					if (cancelled != null && cancelled.getAsBoolean())
+						throw new CancellationException();
+					try {
+						results = (cancelled == null) ? futures.get(i).get()
+							: futures.get(i).get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+					} catch (TimeoutException e) {
+						// check the cancel flag again
+					}
+				}
+				List<T> chunk = chunks.get(i);
+				for (int j = 0; j < results.size(); j++)
+					writer.accept(chunk.get(j), results.get(j));
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw (cause instanceof RuntimeException) ? (RuntimeException) cause
+				: new RuntimeException(cause);
+		} finally {
+			for (Future<List<R>> f : futures)
+				f.cancel(true);
+		}
+	}
+
+	// applies the function to the chunk's items (each worker collects the results in its own buffer)
+	private static <T, R> Callable<List<R>> chunkTask(final List<T> chunk, 
+			final Function<? super T, ? extends R> function, final BooleanSupplier cancelled)
+	{
+		return new Callable<List<R>>() {
+			@Override
+			public List<R> call() throws Exception {
+				List<R> results = new ArrayList<R>(chunk.size());
+				for (T item : chunk) {
+					if (cancelled != null && cancelled.getAsBoolean())
+						throw new CancellationException();
+					results.add(function.apply(item));
+				}
+				return results;
+			}
+		};
+	}
+}
@@ -0,0 +1,136 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AttributeWriterTest {
+	
+	private CyNetwork network;
+	private CyNode a, b;
+	private CyEdge ab;
+	
+	@Before
+	public void setUp() {
+		network = new NetworkTestSupport().getNetwork();
+		a = network.addNode();
+		b = network.addNode();
+		ab = network.addEdge(a, b, true);
+	}
+	
+	@Test
+	public void testSet() {
+		AttributeWriter writer = new AttributeWriter(network, "test");
+		writer.set(a, "NAME", "a", String.class);
+		writer.set(a, "SCORE", 1.5, Double.class);
+		writer.set(b, "NAME", "b", String.class);
+		writer.set(b, "SCORE", null, Double.class); // ignored
+		writer.set(ab, "TYPES", Arrays.asList("x", "y"), String.class);
+		writer.set(network, "VERSION", 3, Integer.class);
+		writer.set(a, CyNetwork.HIDDEN_ATTRS, "HIDDEN", true, Boolean.class);
+		
+		// nothing is written before flush
+		assertNull(network.getDefaultNodeTable().getColumn("NAME"));
+		writer.close();
+		
+		assertEquals(6, writer.getCellsWritten());
+		assertEquals("a", network.getRow(a).get("NAME", String.class));
+		assertEquals(1.5, network.getRow(a).get("SCORE", Double.class), 0.0);
+		assertEquals("b", network.getRow(b).get("NAME", String.class));
+		assertNull(network.getRow(b).get("SCORE", Double.class));
+		assertEquals(Arrays.asList("x", "y"), network.getRow(ab).getList("TYPES", String.class));
+		assertEquals(Integer.valueOf(3), network.getRow(network).get("VERSION", Integer.class));
+		assertEquals(Boolean.TRUE, network.getRow(a, CyNetwork.HIDDEN_ATTRS).get("HIDDEN", Boolean.class));
+		assertNull(network.getDefaultNodeTable().getColumn("HIDDEN"));
+	}
+	
+	@Test
+	public void testExistingColumn() {
+		network.getDefaultNodeTable().createListColumn("NAMES", String.class, false);
+		AttributeWriter writer = new AttributeWriter(network, "test");
+		writer.set(a, "NAMES", Collections.singletonList("a"), String.class);
+		writer.flush();
+		writer.set(b, "NAMES", Collections.singletonList("b"), String.class);
+		writer.close();
+		assertNotNull(network.getDefaultNodeTable().getColumn("NAMES"));
+		assertEquals(Collections.singletonList("a"), network.getRow(a).getList("NAMES", String.class));
+		assertEquals(Collections.singletonList("b"), network.getRow(b).getList("NAMES", String.class));
+	}
+	
+	@Test
+	public void testSkipUnchanged() {
+		AttributeWriter writer = new AttributeWriter(network, "test");
+		writer.set(a, "NAME", "a", String.class);
+		writer.set(b, "NAME", "b", String.class);
+		writer.close();
+		
+		writer = new AttributeWriter(network, "update");
+		writer.setSkipUnchanged(true);
+		writer.set(a, "NAME", "a", String.class);
+		writer.set(b, "NAME", "B", String.class);
+		writer.close();
+		assertEquals(1, writer.getCellsWritten());
+		assertEquals("B", network.getRow(b).get("NAME", String.class));
+	}
+	
+	@Test
+	public void testBatch() {
+		AttributeWriter writer = new AttributeWriter(network, "test");
+		for (int i = 0; i < AttributeWriter.BATCH_SIZE; i++)
+			writer.set(a, "NAME", "a" + i, String.class);
+		// flushed automatically when the batch is full
+		assertEquals(AttributeWriter.BATCH_SIZE, writer.getCellsWritten());
+		writer.set(b, "NAME", "b", String.class);
+		writer.close();
+		assertEquals(AttributeWriter.BATCH_SIZE + 1, writer.getCellsWritten());
+		assertEquals("a" + (AttributeWriter.BATCH_SIZE - 1), network.getRow(a).get("NAME", String.class));
+	}
+	
+	@Test
+	public void testNotList() {
+		AttributeWriter writer = new AttributeWriter(network, "test");
+		try {
+			writer.set(a, "NAMES", Collections.singleton("a"), String.class);
+			fail("a Set is not accepted");
+		} catch (IllegalArgumentException e) {
+			List<?> values = network.getRow(a).getList("NAMES", String.class);
+			assertNull(values);
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.biopax.paxtools.controller.ObjectPropertyEditor;
+import org.biopax.paxtools.controller.PropertyEditor;
+import org.biopax.paxtools.controller.SimpleEditorMap;
+import org.biopax.paxtools.model.BioPAXElement;
+import org.biopax.paxtools.model.BioPAXLevel;
+import org.biopax.paxtools.model.Model;
+import org.biopax.paxtools.model.level3.BindingFeature;
+import org.biopax.paxtools.model.level3.BiochemicalReaction;
+import org.biopax.paxtools.model.level3.Catalysis;
+import org.biopax.paxtools.model.level3.CatalysisDirectionType;
+import org.biopax.paxtools.model.level3.ControlType;
+import org.biopax.paxtools.model.level3.ConversionDirectionType;
+import org.biopax.paxtools.model.level3.DeltaG;
+import org.biopax.paxtools.model.level3.KPrime;
+import org.biopax.paxtools.model.level3.PositionStatusType;
+import org.biopax.paxtools.model.level3.Protein;
+import org.biopax.paxtools.model.level3.ProteinReference;
+import org.biopax.paxtools.model.level3.PublicationXref;
+import org.biopax.paxtools.model.level3.SequenceSite;
+import org.biopax.paxtools.model.level3.SmallMolecule;
+import org.biopax.paxtools.model.level3.SmallMoleculeReference;
+import org.biopax.paxtools.model.level3.Stoichiometry;
+import org.junit.Test;
+
+public class BinaryModelFormatTest {
+	
+	private static final String BASE = "http://biopax.cytoscape.org/test/";
+	
+	/*
+	 * All the kinds of data property values BioPAX L3 has besides strings
+	 * (float, int, boolean, enum; there are no double properties in L3).
+	 */
+	private static Model createModel() {
+		Model m = BioPAXLevel.L3.getDefaultFactory().createModel();
+		m.setXmlBase(BASE);
+		
+		SmallMoleculeReference smr = m.addNew(SmallMoleculeReference.class, BASE + "smr");
+		smr.setDisplayName("ATP");
+		smr.setMolecularWeight(507.18f);
+		SmallMolecule sm = m.addNew(SmallMolecule.class, BASE + "sm");
+		sm.setEntityReference(smr);
+		
+		ProteinReference pr = m.addNew(ProteinReference.class, BASE + "pr");
+		pr.addName("kinase");
+		pr.addName("protein kinase");
+		Protein p = m.addNew(Protein.class, BASE + "p");
+		p.setEntityReference(pr);
+		BindingFeature bf = m.addNew(BindingFeature.class, BASE + "bf");
+		bf.setIntraMolecular(false);
+		SequenceSite site = m.addNew(SequenceSite.class, BASE + "site");
+		site.setSequencePosition(-42);
+		site.setPositionStatus(PositionStatusType.GREATER_THAN);
+		bf.setFeatureLocation(site);
+		p.addFeature(bf);
+		
+		BiochemicalReaction br = m.addNew(BiochemicalReaction.class, BASE + "br");
+		br.addLeft(sm);
+		br.addRight(p);
+		br.setSpontaneous(true);
+		br.setConversionDirection(ConversionDirectionType.REVERSIBLE);
+		br.addDeltaH(-1.5e-3f);
+		br.addDeltaH(12345.678f);
+		br.addDeltaS(0.1f);
+		Stoichiometry st = m.addNew(Stoichiometry.class, BASE + "st");
+		st.setStoichiometricCoefficient(2.0f);
+		st.setPhysicalEntity(sm);
+		br.addParticipantStoichiometry(st);
+		DeltaG dg = m.addNew(DeltaG.class, BASE + "dg");
+		dg.setDeltaGPrime0(-30.5f);
+		dg.setPh(7.4f);
+		dg.setTemperature(298.15f);
+		br.addDeltaG(dg);
+		KPrime kp = m.addNew(KPrime.class, BASE + "kp");
+		kp.setKPrime(Float.MAX_VALUE);
+		kp.setIonicStrength(0.25f);
+		kp.setPMg(3.0f);
+		br.addKEQ(kp);
+		
+		Catalysis c = m.addNew(Catalysis.class, BASE + "c");
+		c.addController(p);
+		c.addControlled(br);
+		c.setControlType(ControlType.ACTIVATION_ALLOSTERIC);
+		c.setCatalysisDirection(CatalysisDirectionType.RIGHT_TO_LEFT);
+		
+		PublicationXref px = m.addNew(PublicationXref.class, BASE + "px");
+		px.setDb("pubmed");
+		px.setId("123");
+		px.setYear(1999);
+		br.addXref(px);
+		
+		return m;
+	}
+	
+	private static Model roundTrip(Model model) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryModelFormat.write(model, out);
+		return BinaryModelFormat.read(new ByteArrayInputStream(out.toByteArray()), 
+			BinaryModelFormatTest.class.getClassLoader());
+	}
+	
+	// property values as strings (elements - by URI), to compare the models
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static Set<String> values(BioPAXElement bpe, PropertyEditor editor) {
+		Set<String> values = new TreeSet<String>();
+		for (Object value : (Set<?>) editor.getValueFromBean(bpe)) {
+			if (value == null || editor.isUnknown(value))
+				continue;
+			values.add((editor instanceof ObjectPropertyEditor) 
+				? ((BioPAXElement) value).getUri() : value.getClass().getSimpleName() + ":" + value);
+		}
+		return values;
+	}
+	
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testRoundTrip() throws IOException {
+		Model model = createModel();
+		Model copy = roundTrip(model);
+		
+		assertEquals(model.getXmlBase(), copy.getXmlBase());
+		assertEquals(model.getObjects().size(), copy.getObjects().size());
+		for (BioPAXElement bpe : model.getObjects()) {
+			BioPAXElement other = copy.getByID(bpe.getUri());
+			assertNotNull(bpe.getUri(), other);
+			assertEquals(bpe.getModelInterface(), other.getModelInterface());
+			for (PropertyEditor editor : SimpleEditorMap.L3.getEditorsOf(bpe)) {
+				assertEquals(bpe.getUri() + " " + editor.getProperty(), 
+					values(bpe, editor), values(other, editor));
+			}
+		}
+	}
+	
+	@Test
+	public void testDataPropertyTypes() throws IOException {
+		Model copy = roundTrip(createModel());
+		
+		assertEquals(507.18f, ((SmallMoleculeReference) copy.getByID(BASE + "smr")).getMolecularWeight(), 0f);
+		assertEquals(Float.MAX_VALUE, ((KPrime) copy.getByID(BASE + "kp")).getKPrime(), 0f);
+		assertEquals(-42, ((SequenceSite) copy.getByID(BASE + "site")).getSequencePosition());
+		assertEquals(1999, ((PublicationXref) copy.getByID(BASE + "px")).getYear());
+		assertEquals(Boolean.FALSE, ((BindingFeature) copy.getByID(BASE + "bf")).getIntraMolecular());
+		BiochemicalReaction br = (BiochemicalReaction) copy.getByID(BASE + "br");
+		assertEquals(Boolean.TRUE, br.getSpontaneous());
+		assertEquals(ConversionDirectionType.REVERSIBLE, br.getConversionDirection());
+		assertEquals(2, br.getDeltaH().size());
+		assertTrue(br.getDeltaH().contains(-1.5e-3f));
+		Catalysis c = (Catalysis) copy.getByID(BASE + "c");
+		assertEquals(ControlType.ACTIVATION_ALLOSTERIC, c.getControlType());
+		assertEquals(CatalysisDirectionType.RIGHT_TO_LEFT, c.getCatalysisDirection());
+		assertEquals(PositionStatusType.GREATER_THAN, 
+			((SequenceSite) copy.getByID(BASE + "site")).getPositionStatus());
+	}
+	
+	@Test
+	public void testNotThisFormat() {
+		try {
+			BinaryModelFormat.read(new ByteArrayInputStream("<rdf:RDF/>".getBytes()), 
+				BinaryModelFormatTest.class.getClassLoader());
+			fail("must not read other data");
+		} catch (IOException e) {
+			// ok
+		}
+	}
+}
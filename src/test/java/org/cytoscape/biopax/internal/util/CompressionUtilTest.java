@@ -0,0 +1,178 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.cytoscape.biopax.internal.util.CompressionUtil.Format;
+import org.junit.Test;
+
+public class CompressionUtilTest {
+	
+	// compressible test data (several async buffers long)
+	private static byte[] data(int size) {
+		byte[] data = new byte[size];
+		Random random = new Random(1);
+		for (int i = 0; i < size; i++)
+			data[i] = (byte) ('a' + random.nextInt(4));
+		return data;
+	}
+	
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(data);
+		}
+		return bytes.toByteArray();
+	}
+	
+	private static byte[] bzip2(byte[] data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = new BZip2CompressorOutputStream(bytes)) {
+			out.write(data);
+		}
+		return bytes.toByteArray();
+	}
+	
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		int n;
+		while ((n = in.read(buf)) != -1)
+			out.write(buf, 0, n);
+		return out.toByteArray();
+	}
+	
+	private static Format detect(byte[] data) throws IOException {
+		InputStream in = new ByteArrayInputStream(data);
+		Format format = CompressionUtil.detect(in);
+		assertEquals("position must not change", data.length, in.available());
+		return format;
+	}
+	
+	@Test
+	public void testDetect() throws IOException {
+		byte[] data = data(1000);
+		assertEquals(Format.NONE, detect(data));
+		assertEquals(Format.NONE, detect(new byte[0]));
+		assertEquals(Format.NONE, detect(new byte[] {0x1f}));
+		assertEquals(Format.GZIP, detect(gzip(data)));
+		assertEquals(Format.BZIP2, detect(bzip2(data)));
+		assertEquals(Format.ZSTD, detect(new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0}));
+		
+		ByteArrayOutputStream zip = new ByteArrayOutputStream();
+		try (ZipOutputStream out = new ZipOutputStream(zip)) {
+			out.putNextEntry(new ZipEntry("test.owl"));
+			out.write(data);
+		}
+		assertEquals(Format.ZIP, detect(zip.toByteArray()));
+	}
+	
+	@Test
+	public void testDecompress() throws IOException {
+		byte[] data = data(1000);
+		assertArrayEquals(data, readAll(CompressionUtil.decompress(new ByteArrayInputStream(gzip(data)))));
+		assertArrayEquals(data, readAll(CompressionUtil.decompress(new ByteArrayInputStream(bzip2(data)))));
+		assertArrayEquals(data, readAll(CompressionUtil.decompress(new ByteArrayInputStream(data))));
+	}
+	
+	@Test
+	public void testUncompressedAsIs() throws IOException {
+		InputStream in = new ByteArrayInputStream(data(10));
+		assertSame(in, CompressionUtil.decompressAsync(in));
+	}
+	
+	@Test(expected = IOException.class)
+	public void testZstdNotSupported() throws IOException {
+		CompressionUtil.decompress(new ByteArrayInputStream(new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0}));
+	}
+	
+	@Test
+	public void testDecompressAsync() throws IOException {
+		byte[] data = data(3 * 1024 * 1024 + 17);
+		try (InputStream in = CompressionUtil.decompressAsync(new ByteArrayInputStream(gzip(data)))) {
+			assertArrayEquals(data, readAll(in));
+			assertEquals(-1, in.read());
+		}
+		data = data(300 * 1024 + 17);
+		try (InputStream in = CompressionUtil.decompressAsync(new ByteArrayInputStream(bzip2(data)))) {
+			// byte by byte, then the rest
+			for (int i = 0; i < 100; i++)
+				assertEquals(data[i] & 0xff, in.read());
+			assertArrayEquals(Arrays.copyOfRange(data, 100, data.length), readAll(in));
+		}
+	}
+	
+	@Test
+	public void testAsyncError() throws IOException {
+		byte[] gzip = gzip(data(1024 * 1024));
+		// corrupt the compressed data (after the header)
+		byte[] bad = Arrays.copyOf(gzip, gzip.length / 2);
+		try (InputStream in = CompressionUtil.decompressAsync(new ByteArrayInputStream(bad))) {
+			readAll(in);
+			fail("must fail on the truncated data");
+		} catch (IOException e) {
+			// ok
+		}
+	}
+	
+	@Test
+	public void testAsyncClose() throws Exception {
+		byte[] data = data(8 * 1024 * 1024);
+		InputStream in = CompressionUtil.decompressAsync(new ByteArrayInputStream(gzip(data)));
+		assertEquals(data[0] & 0xff, in.read());
+		in.close();
+		assertEquals(-1, in.read());
+		// the decompressing thread stops
+		for (int i = 0; i < 100 && isDecompressing(); i++)
+			Thread.sleep(50);
+		assertFalse(isDecompressing());
+	}
+	
+	private static boolean isDecompressing() {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if ("biopax-decompress".equals(thread.getName()) && thread.isAlive())
+				return true;
+		}
+		return false;
+	}
+}
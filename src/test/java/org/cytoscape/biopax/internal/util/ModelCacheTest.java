@@ -0,0 +1,136 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.biopax.paxtools.model.BioPAXLevel;
+import org.biopax.paxtools.model.Model;
+import org.biopax.paxtools.model.level3.Protein;
+import org.biopax.paxtools.model.level3.ProteinReference;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModelCacheTest {
+	
+	private static final long DAY = 24L*60*60*1000;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private static Model createModel() {
+		Model m = BioPAXLevel.L3.getDefaultFactory().createModel();
+		ProteinReference pr = m.addNew(ProteinReference.class, "http://biopax.cytoscape.org/test/pr");
+		pr.setDisplayName("GENE");
+		Protein p = m.addNew(Protein.class, "http://biopax.cytoscape.org/test/p");
+		p.setEntityReference(pr);
+		return m;
+	}
+	
+	private File file(String name, int size, long age) throws IOException {
+		File f = new File(folder.getRoot(), name);
+		Files.write(f.toPath(), new byte[size]);
+		f.setLastModified(System.currentTimeMillis() - age);
+		return f;
+	}
+	
+	@Test
+	public void testPutGet() {
+		ModelCache cache = new ModelCache(folder.getRoot(), 1L << 30, DAY);
+		assertTrue(cache.isEnabled());
+		assertNull(cache.get("abc"));
+		
+		cache.put("abc", createModel());
+		assertTrue(new File(folder.getRoot(), "abc.model").isFile());
+		assertEquals(0, folder.getRoot().list((dir, name) -> name.endsWith(".tmp")).length);
+		
+		Model model = cache.get("abc");
+		assertNotNull(model);
+		assertEquals(2, model.getObjects().size());
+		assertEquals("GENE", ((ProteinReference) model.getByID("http://biopax.cytoscape.org/test/pr")).getDisplayName());
+	}
+	
+	@Test
+	public void testDisabled() {
+		ModelCache cache = new ModelCache(folder.getRoot(), 0L, DAY);
+		assertFalse(cache.isEnabled());
+		cache.put("abc", createModel());
+		assertNull(cache.get("abc"));
+		assertEquals(0, folder.getRoot().list().length);
+	}
+	
+	@Test
+	public void testBadEntryDeleted() throws IOException {
+		ModelCache cache = new ModelCache(folder.getRoot(), 1L << 30, DAY);
+		File bad = file("abc.model", 100, 0L);
+		assertNull(cache.get("abc"));
+		assertFalse(bad.exists());
+	}
+	
+	@Test
+	public void testEvictLeastRecentlyUsed() throws IOException {
+		ModelCache cache = new ModelCache(folder.getRoot(), 1000L, DAY);
+		File old = file("a.model", 600, 2000L);
+		File recent = file("b.model", 600, 1000L);
+		File other = file("c.txt", 2000, 3000L);
+		cache.evict();
+		assertTrue(recent.exists());
+		assertFalse(old.exists());
+		assertTrue(other.exists()); //not a cache file
+	}
+	
+	@Test
+	public void testEvictExpired() throws IOException {
+		ModelCache cache = new ModelCache(folder.getRoot(), 1000L, DAY);
+		File expired = file("a.model", 10, 2 * DAY);
+		File fresh = file("b.model", 10, 0L);
+		cache.evict();
+		assertFalse(expired.exists());
+		assertTrue(fresh.exists());
+	}
+	
+	@Test
+	public void testEvictTempFiles() throws IOException {
+		ModelCache cache = new ModelCache(folder.getRoot(), 1000L, 100 * DAY);
+		File stale = file("a.model-1.tmp", 10, 2 * 60 * 60 * 1000L);
+		File writing = file("b.model-2.tmp", 800, 0L);
+		File entry = file("c.model", 300, 0L);
+		cache.evict();
+		assertFalse(stale.exists());
+		assertTrue(writing.exists());
+		// the temp. file being written counts towards the max. size
+		assertFalse(entry.exists());
+	}
+}
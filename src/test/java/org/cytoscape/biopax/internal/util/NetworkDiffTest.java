@@ -0,0 +1,145 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NetworkDiffTest {
+	
+	private static final String URI = "URI";
+	
+	private CyNetwork network;
+	private CyNode a, b, c, user;
+	private CyEdge ab, ab2, bc, ac, userEdge;
+	
+	private CyNode node(String uri) {
+		CyNode node = network.addNode();
+		network.getRow(node).set(URI, uri);
+		return node;
+	}
+	
+	private CyEdge edge(CyNode source, CyNode target, String type) {
+		CyEdge edge = network.addEdge(source, target, true);
+		network.getRow(edge).set(CyEdge.INTERACTION, type);
+		return edge;
+	}
+	
+	@Before
+	public void setUp() {
+		network = new NetworkTestSupport().getNetwork();
+		network.getDefaultNodeTable().createColumn(URI, String.class, false);
+		a = node("http://a");
+		b = node("http://b");
+		c = node("http://c");
+		user = node(null); // e.g., added by the user
+		ab = edge(a, b, "controls");
+		ab2 = edge(a, b, "controls");
+		bc = edge(b, c, "controls");
+		ac = edge(a, c, "binds");
+		userEdge = edge(user, a, "note");
+	}
+	
+	@Test
+	public void testReuseNodes() {
+		NetworkDiff diff = new NetworkDiff(network, URI);
+		assertSame(network, diff.getNetwork());
+		assertSame(a, diff.getNode("http://a"));
+		assertSame(a, diff.getNode("http://a"));
+		assertTrue(diff.isReused(a));
+		
+		CyNode d = diff.getNode("http://d");
+		assertFalse(diff.isReused(d));
+		assertSame(d, diff.getNode("http://d"));
+		assertTrue(network.containsNode(d));
+		assertEquals(5, network.getNodeCount());
+	}
+	
+	@Test
+	public void testReuseEdges() {
+		NetworkDiff diff = new NetworkDiff(network, URI);
+		CyNode na = diff.getNode("http://a");
+		CyNode nb = diff.getNode("http://b");
+		
+		// both parallel edges of the same type can be reused, but then a new one is added
+		CyEdge e1 = diff.getEdge(na, nb, "controls");
+		CyEdge e2 = diff.getEdge(na, nb, "controls");
+		assertNotSame(e1, e2);
+		assertTrue((e1 == ab && e2 == ab2) || (e1 == ab2 && e2 == ab));
+		CyEdge e3 = diff.getEdge(na, nb, "controls");
+		assertTrue(e3 != ab && e3 != ab2);
+		
+		// type and direction matter
+		CyEdge e4 = diff.getEdge(nb, na, "controls");
+		assertTrue(network.containsEdge(e4));
+		assertEquals(nb, e4.getSource());
+		assertEquals(7, network.getEdgeCount());
+	}
+	
+	@Test
+	public void testRemoveStale() {
+		NetworkDiff diff = new NetworkDiff(network, URI);
+		CyNode na = diff.getNode("http://a");
+		CyNode nb = diff.getNode("http://b");
+		diff.getEdge(na, nb, "controls");
+		diff.removeStale();
+		
+		// c (and its edges) and the other a-b edge are gone
+		assertTrue(network.containsNode(a));
+		assertTrue(network.containsNode(b));
+		assertFalse(network.containsNode(c));
+		assertFalse(network.containsEdge(bc));
+		assertFalse(network.containsEdge(ac));
+		assertEquals(1, (network.containsEdge(ab) ? 1 : 0) + (network.containsEdge(ab2) ? 1 : 0));
+		
+		// nodes without URI and their edges are not touched
+		assertTrue(network.containsNode(user));
+		assertTrue(network.containsEdge(userEdge));
+		assertEquals(3, network.getNodeCount());
+		assertEquals(2, network.getEdgeCount());
+	}
+	
+	@Test
+	public void testNothingRequested() {
+		NetworkDiff diff = new NetworkDiff(network, URI);
+		diff.removeStale();
+		assertEquals(1, network.getNodeCount());
+		assertEquals(0, network.getEdgeCount());
+		// then nothing else is removed
+		diff.removeStale();
+		assertTrue(network.containsNode(user));
+	}
+}
@@ -0,0 +1,78 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+
+import org.biopax.paxtools.model.BioPAXFactory;
+import org.biopax.paxtools.model.BioPAXLevel;
+import org.biopax.paxtools.model.level3.Protein;
+import org.biopax.paxtools.model.level3.ProteinReference;
+import org.biopax.paxtools.model.level3.SmallMolecule;
+import org.biopax.paxtools.model.level3.UnificationXref;
+import org.junit.Test;
+
+public class PropertyAccessorsTest {
+	
+	private final BioPAXFactory factory = BioPAXLevel.L3.getDefaultFactory();
+	
+	@Test
+	public void testGetter() {
+		assertTrue(PropertyAccessors.has(Protein.class, "entityReference"));
+		assertTrue(PropertyAccessors.has(Protein.class, "displayName"));
+		assertFalse(PropertyAccessors.has(SmallMolecule.class, "organism"));
+		assertFalse(PropertyAccessors.has(Protein.class, "noSuchProperty"));
+		assertNull(PropertyAccessors.getter(Protein.class, "noSuchProperty"));
+		// cached
+		assertSame(PropertyAccessors.getter(Protein.class, "displayName"),
+			PropertyAccessors.getter(Protein.class, "displayName"));
+	}
+	
+	@Test
+	public void testGet() {
+		Protein protein = factory.create(Protein.class, "http://protein");
+		ProteinReference reference = factory.create(ProteinReference.class, "http://reference");
+		UnificationXref xref = factory.create(UnificationXref.class, "http://xref");
+		xref.setDb("uniprot knowledgebase");
+		xref.setId("P12345");
+		reference.addXref(xref);
+		protein.setEntityReference(reference);
+		protein.setDisplayName("PROT");
+		
+		assertEquals("PROT", PropertyAccessors.get(protein, "displayName"));
+		assertSame(reference, PropertyAccessors.get(protein, "entityReference"));
+		assertEquals("P12345", PropertyAccessors.get(xref, "id"));
+		assertTrue(((Collection<?>) PropertyAccessors.get(reference, "xref")).contains(xref));
+		// not a property of the type
+		assertNull(PropertyAccessors.get(protein, "organism"));
+		assertNull(PropertyAccessors.get(xref, "entityReference"));
+	}
+}
@@ -0,0 +1,148 @@
+package org.cytoscape.biopax.internal.util;
+
+/*
+ * #%L
+ * Cytoscape BioPAX Impl (biopax-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkersTest {
+	
+	private ExecutorService pool;
+	private List<Integer> items;
+	
+	@Before
+	public void setUp() {
+		pool = Workers.newPool("workers-test", 4);
+		items = new ArrayList<Integer>();
+		for (int i = 0; i < 1000; i++)
+			items.add(i);
+	}
+	
+	@After
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+	
+	@Test
+	public void testMap() throws InterruptedException {
+		final List<Integer> results = new ArrayList<Integer>();
+		Workers.map(pool, items, 7, i -> i * 2, (item, result) -> {
+			assertEquals(item * 2, result.intValue());
+			results.add(item);
+		});
+		Collections.sort(results);
+		assertEquals(items, results);
+	}
+	
+	@Test
+	public void testMapInOrder() throws InterruptedException {
+		final List<Integer> results = new ArrayList<Integer>();
+		// later chunks finish first
+		Workers.mapInOrder(pool, items, 10, i -> {
+			if (i < 10)
+				sleep(50);
+			return i;
+		}, (item, result) -> results.add(result), null);
+		assertEquals(items, results);
+	}
+	
+	@Test
+	public void testForEach() throws InterruptedException {
+		final AtomicInteger sum = new AtomicInteger();
+		Workers.forEach(pool, items, 13, i -> sum.addAndGet(i), null);
+		assertEquals(999 * 1000 / 2, sum.get());
+		
+		sum.set(0);
+		Workers.forEach(null, items, 13, i -> sum.addAndGet(i), null);
+		assertEquals(999 * 1000 / 2, sum.get());
+	}
+	
+	@Test
+	public void testCancel() throws InterruptedException {
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		final AtomicInteger written = new AtomicInteger();
+		try {
+			Workers.map(pool, items, 1, i -> {
+				sleep(5);
+				return i;
+			}, (item, result) -> {
+				if (written.incrementAndGet() == 10)
+					cancelled.set(true);
+			}, cancelled::get);
+			fail("not cancelled");
+		} catch (CancellationException e) {
+			assertTrue(written.get() < items.size());
+		}
+	}
+	
+	@Test
+	public void testCancelInOrder() throws InterruptedException {
+		final AtomicBoolean cancelled = new AtomicBoolean(true);
+		final AtomicInteger written = new AtomicInteger();
+		try {
+			Workers.mapInOrder(pool, items, 1, i -> i, (item, result) -> written.incrementAndGet(), 
+				cancelled::get);
+			fail("not cancelled");
+		} catch (CancellationException e) {
+			assertEquals(0, written.get());
+		}
+	}
+	
+	@Test
+	public void testException() throws InterruptedException {
+		try {
+			Workers.mapInOrder(pool, items, 10, i -> {
+				if (i == 555)
+					throw new IllegalStateException("bad item");
+				return i;
+			}, (item, result) -> {}, null);
+			fail("no exception");
+		} catch (IllegalStateException e) {
+			assertEquals("bad item", e.getMessage());
+		}
+	}
+	
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			throw new CancellationException();
+		}
+	}
+}